@@ -22,26 +22,116 @@
  */
 package net.imagej.ui.swing.ops;
 
+import java.awt.GraphicsEnvironment;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.swing.SwingUtilities;
+
+import net.imagej.ops.Op;
+import net.imagej.ops.OpInfo;
+import net.imagej.ops.OpService;
+
 import org.scijava.Context;
+import org.scijava.command.Command;
+import org.scijava.command.CommandInfo;
+import org.scijava.event.EventHandler;
+import org.scijava.log.LogService;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
+import org.scijava.plugin.PluginInfo;
+import org.scijava.plugin.event.PluginsAddedEvent;
+import org.scijava.plugin.event.PluginsRemovedEvent;
+import org.scijava.prefs.PrefService;
 import org.scijava.service.AbstractService;
 import org.scijava.service.Service;
+import org.scijava.thread.ThreadService;
 
 /**
  * Default implementation of the {@link OpFinderService}. Manages an
  * {@link OpFinder} instance.
+ * <p>
+ * Unless disabled via the {@link #PREWARM_KEY} preference, the
+ * {@link OpCatalog} is built on a background thread as soon as this service
+ * is initialized, so the {@code OpFinder} can be opened without waiting.
+ * </p>
+ * <p>
+ * Searches only read the catalog, which is immutable once built, so they
+ * need no locking.
+ * </p>
+ * <p>
+ * When {@link Op} plugins are added or removed at runtime, e.g. by an update
+ * site or a script, an updated catalog is derived from the current one on a
+ * background thread; see {@link OpCatalog#update}. Searches use the current
+ * catalog until the update is done, and the {@code OpFinder} then shows the
+ * updated one.
+ * </p>
  *
  * @author Mark Hiner
  */
 @Plugin(type = Service.class)
 public class DefaultOpFinderService extends AbstractService implements OpFinderService {
 
+	// -- Constants --
+
+	public static final String PREWARM_KEY = "net.imagej.ui.swing.ops.opfinder.prewarm";
+
+	// -- Parameters --
+
 	@Parameter
 	private Context context;
 
+	@Parameter
+	private OpService opService;
+
+	@Parameter
+	private PrefService prefService;
+
+	@Parameter
+	private LogService logService;
+
+	@Parameter
+	private ThreadService threadService;
+
+	// -- Fields --
+
 	private OpFinder opFinder;
 
+	private Future<OpCatalog> catalog;
+
+	// The built catalog, once a search has waited for it
+	private volatile OpCatalog builtCatalog;
+
+	// Shared by all batch searches; created by the first one
+	private ForkJoinPool searchPool;
+
+	// -- Service methods --
+
+	@Override
+	public void initialize() {
+		// There is nothing to pre-warm if the Op Finder can never be shown
+		if (!GraphicsEnvironment.isHeadless() && prefService.getBoolean(PREWARM_KEY, true))
+			getCatalog();
+	}
+
+	@Override
+	public void dispose() {
+		synchronized (this) {
+			if (searchPool != null)
+				searchPool.shutdown();
+			searchPool = null;
+		}
+		super.dispose();
+	}
+
+	// -- OpFinderService methods --
+
 	@Override
 	public void showOpFinder() {
 		final boolean initSize = opFinder == null || opFinder.isVisible() == false;
@@ -58,9 +148,198 @@ public class DefaultOpFinderService extends AbstractService implements OpFinderS
 		opFinder.requestFocus();
 	}
 
+	@Override
+	public List<OpSearchResult> search(final String query, final boolean simple, final int limit) {
+		final String filter = query.toLowerCase(Locale.getDefault());
+		if (filter.isEmpty() || limit <= 0)
+			return Collections.emptyList();
+
+		final OpCatalog opCatalog = getBuiltCatalog();
+		return getResults(opCatalog, simple, opCatalog.getIndex(simple).score(filter), limit);
+	}
+
+	@Override
+	public List<List<OpSearchResult>> searchAll(final List<String> queries, final boolean simple,
+			final int limit) {
+		final String[] filters = new String[queries.size()];
+		for (int i = 0; i < filters.length; i++)
+			filters[i] = queries.get(i).toLowerCase(Locale.getDefault());
+
+		final OpCatalog opCatalog = getBuiltCatalog();
+		final OpSearchIndex.Hits[] hits = opCatalog.getIndex(simple).scoreAll(filters, getSearchPool());
+
+		final List<List<OpSearchResult>> results = new ArrayList<>(filters.length);
+		for (int i = 0; i < filters.length; i++) {
+			final boolean empty = filters[i].isEmpty() || limit <= 0;
+			results.add(empty ? Collections.<OpSearchResult> emptyList() : getResults(opCatalog, simple, hits[i],
+					limit));
+		}
+		return results;
+	}
+
+	// -- Event handlers --
+
+	/** Adds any ops among the new plugins to the catalog. */
+	@EventHandler
+	protected void onEvent(final PluginsAddedEvent evt) {
+		final List<OpInfo> added = new ArrayList<>();
+		for (final PluginInfo<?> info : evt.getItems()) {
+			if (isOp(info)) {
+				@SuppressWarnings("unchecked")
+				final PluginInfo<Command> commandInfo = (PluginInfo<Command>) info;
+				added.add(new OpInfo(new CommandInfo(commandInfo)));
+			}
+		}
+		if (!added.isEmpty())
+			updateCatalog(added, Collections.<String> emptyList());
+	}
+
+	/** Removes any ops among the removed plugins from the catalog. */
+	@EventHandler
+	protected void onEvent(final PluginsRemovedEvent evt) {
+		final List<String> removed = new ArrayList<>();
+		for (final PluginInfo<?> info : evt.getItems()) {
+			if (isOp(info))
+				removed.add(info.getClassName());
+		}
+		if (!removed.isEmpty())
+			updateCatalog(Collections.<OpInfo> emptyList(), removed);
+	}
+
+	// -- Helper methods --
+
+	private static boolean isOp(final PluginInfo<?> info) {
+		return info.getPluginType() != null && Op.class.isAssignableFrom(info.getPluginType());
+	}
+
+	/**
+	 * @return The pool scoring batch searches. Concurrent batches share its
+	 *         threads rather than each starting a pool of their own.
+	 */
+	private synchronized ForkJoinPool getSearchPool() {
+		if (searchPool == null)
+			searchPool = OpCatalog.createPool();
+		return searchPool;
+	}
+
 	private synchronized void makeOpFinder() {
 		if (opFinder == null)
-			opFinder = new OpFinder(context);
+			opFinder = new OpFinder(context, getCatalog());
+	}
+
+	/**
+	 * @return The {@link OpCatalog}, which is read from the
+	 *         {@link OpCatalogCache} or built on a background thread the first
+	 *         time this method is called.
+	 */
+	private synchronized Future<OpCatalog> getCatalog() {
+		if (catalog == null) {
+			catalog = threadService.run(new Callable<OpCatalog>() {
+
+				@Override
+				public OpCatalog call() {
+					return new OpCatalogCache(logService).get(opService.infos(), threadService);
+				}
+			});
+		}
+		return catalog;
+	}
+
+	/**
+	 * Derive an updated catalog once the current one is available, then show
+	 * it. Updates are applied in the order they were requested. If the
+	 * catalog was never requested, there is nothing to update: it will be
+	 * built from the then current ops.
+	 *
+	 * @param added Ops to add
+	 * @param removed Classes of the ops to remove
+	 */
+	private synchronized void updateCatalog(final List<OpInfo> added, final List<String> removed) {
+		if (catalog == null)
+			return;
+
+		final Future<OpCatalog> previous = catalog;
+		catalog = threadService.run(new Callable<OpCatalog>() {
+
+			@Override
+			public OpCatalog call() {
+				final OpCatalog updated = await(previous).update(added, removed);
+				synchronized (DefaultOpFinderService.this) {
+					builtCatalog = updated;
+				}
+
+				final OpFinder finder = getOpFinder();
+				if (finder != null) {
+					SwingUtilities.invokeLater(new Runnable() {
+
+						@Override
+						public void run() {
+							finder.setCatalog(updated);
+						}
+					});
+				}
+				return updated;
+			}
+		});
+	}
+
+	private synchronized OpFinder getOpFinder() {
+		return opFinder;
+	}
+
+	/**
+	 * @return The best {@code limit} ops of the given hits which match some
+	 *         part of the query, best first.
+	 */
+	private static List<OpSearchResult> getResults(final OpCatalog opCatalog, final boolean simple,
+			final OpSearchIndex.Hits hits, final int limit) {
+		// Entries which match no part of the query are not hits, and thus
+		// never results
+		final TopK top = hits.top(limit);
+		final int[] ids = top.ids(0);
+		final int[] scores = top.scores(0);
+
+		final List<OpSearchResult> results = new ArrayList<>(ids.length);
+		for (int i = 0; i < ids.length; i++) {
+			final int op = opCatalog.getOp(simple, ids[i]);
+			results.add(new OpSearchResult(opCatalog.getName(simple, op), opCatalog.getCodeCall(op),
+					opCatalog.getReferenceClass(op), opCatalog.getCommandInfo(op), scores[i]));
+		}
+		return results;
+	}
+
+	/**
+	 * @return The {@link OpCatalog}, waiting for it if it is still being
+	 *         built. Once available, this does not block.
+	 */
+	private OpCatalog getBuiltCatalog() {
+		final OpCatalog opCatalog = builtCatalog;
+		if (opCatalog != null)
+			return opCatalog;
+
+		final OpCatalog awaited = await(getCatalog());
+		synchronized (this) {
+			// An update may have been built in the meantime
+			if (builtCatalog == null)
+				builtCatalog = awaited;
+			return builtCatalog;
+		}
+	}
+
+	/**
+	 * @return The result of the given pending {@link OpCatalog}. If it
+	 *         failed, the catalog is built on the calling thread instead.
+	 */
+	private OpCatalog await(final Future<OpCatalog> pendingCatalog) {
+		try {
+			return pendingCatalog.get();
+		} catch (final InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the op catalog", exc);
+		} catch (final ExecutionException exc) {
+			logService.error(exc);
+			return new OpCatalogCache(logService).get(opService.infos(), threadService);
+		}
 	}
 
 }
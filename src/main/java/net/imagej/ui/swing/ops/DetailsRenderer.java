@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.html.HTMLDocument;
+import javax.swing.text.html.HTMLEditorKit;
+
+/**
+ * Parses the HTML shown in the {@link OpFinder} details pane into
+ * {@link HTMLDocument}s, and keeps the most recently rendered ones. Parsing is
+ * the expensive part of displaying a page, and a document which is not yet
+ * shown by any component may be built on any thread, as
+ * {@link javax.swing.JEditorPane#setPage} does for asynchronous loading. The
+ * EDT then only has to swap the finished document in.
+ */
+public class DetailsRenderer {
+
+	// -- Constants --
+
+	public static final int DEFAULT_CAPACITY = 32;
+
+	// -- Fields --
+
+	private final HTMLEditorKit kit = new HTMLEditorKit();
+	private final LinkedHashMap<String, HTMLDocument> documents;
+
+	// -- Constructors --
+
+	public DetailsRenderer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param capacity Number of rendered documents to keep
+	 */
+	public DetailsRenderer(final int capacity) {
+		documents = new LinkedHashMap<String, HTMLDocument>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<String, HTMLDocument> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	// -- DetailsRenderer methods --
+
+	/**
+	 * @return The rendered document for the given key, or {@code null}.
+	 */
+	public synchronized HTMLDocument getIfPresent(final String key) {
+		return documents.get(key);
+	}
+
+	/**
+	 * Parse the given HTML into a new document and keep it under the given
+	 * key. Should not be called on the EDT, unless the HTML is small.
+	 *
+	 * @return The rendered document.
+	 */
+	public HTMLDocument render(final String key, final String html) {
+		final HTMLDocument document = (HTMLDocument) kit.createDefaultDocument();
+		// As JEditorPane#setText does, ignore <meta> charset declarations
+		document.putProperty("IgnoreCharsetDirective", Boolean.TRUE);
+		try {
+			kit.read(new StringReader(html), document, 0);
+		} catch (final IOException | BadLocationException exc) {
+			// Reading from a string at offset 0 cannot fail
+			throw new IllegalStateException(exc);
+		}
+
+		synchronized (this) {
+			documents.put(key, document);
+		}
+		return document;
+	}
+}
@@ -0,0 +1,311 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.scijava.log.LogService;
+
+/**
+ * Two-level cache of the Javadoc HTML shown in the {@link OpFinder} details
+ * pane. Recently used pages are kept in memory, in a least-recently-used map
+ * bounded by the approximate number of bytes held. Every page is also written
+ * to a directory on disk, so it survives restarts, together with the HTTP
+ * validators it was served with. Pages on disk expire after a fixed age; an
+ * expired page is kept so that it can be revalidated with a conditional
+ * request rather than fetched again.
+ */
+public class JavadocCache {
+
+	// -- Constants --
+
+	public static final String CACHE_DIR = "op-finder-javadoc";
+	public static final long DEFAULT_MEMORY_LIMIT = 4L * 1024 * 1024;
+	public static final long DEFAULT_MAX_AGE = TimeUnit.DAYS.toMillis(7);
+
+	// Estimated bytes used by each in-memory entry, besides its characters
+	private static final int ENTRY_OVERHEAD = 128;
+
+	// First line of a persisted page, followed by its ETag and Last-Modified
+	// lines. Files without it hold bare HTML.
+	private static final String MAGIC = "#op-finder-javadoc 1";
+
+	// Expired pages are only pruned after this many multiples of the maximum
+	// age, so they remain available for revalidation in the meantime.
+	private static final int PRUNE_AGE_FACTOR = 4;
+
+	// -- Fields --
+
+	private final File dir;
+	private final long memoryLimit;
+	private final long maxAge;
+	private final LogService logService;
+
+	private final LinkedHashMap<String, String> pages = new LinkedHashMap<>(16, 0.75f, true);
+	private long memoryUsed;
+
+	// -- Constructors --
+
+	/**
+	 * Create a cache backed by {@link #CACHE_DIR} in the user's ImageJ
+	 * directory, with the default limits.
+	 */
+	public JavadocCache(final LogService logService) {
+		this(new File(new File(System.getProperty("user.home"), ".imagej"), CACHE_DIR), DEFAULT_MEMORY_LIMIT,
+				DEFAULT_MAX_AGE, logService);
+	}
+
+	/**
+	 * @param dir Directory to persist pages in
+	 * @param memoryLimit Approximate number of bytes to keep in memory
+	 * @param maxAge Milliseconds after which a persisted page expires
+	 */
+	public JavadocCache(final File dir, final long memoryLimit, final long maxAge, final LogService logService) {
+		this.dir = dir;
+		this.memoryLimit = memoryLimit;
+		this.maxAge = maxAge;
+		this.logService = logService;
+	}
+
+	// -- JavadocCache methods --
+
+	/**
+	 * Look up a page in memory only. This never blocks on I/O, so it is safe
+	 * to call on the EDT.
+	 *
+	 * @return The cached HTML for the given URL, or {@code null}.
+	 */
+	public synchronized String getIfPresent(final String url) {
+		return pages.get(url);
+	}
+
+	/**
+	 * Look up a page in memory, then on disk. A page read from disk is kept
+	 * in memory again. Expired pages are ignored; see {@link #getExpired}.
+	 *
+	 * @return The cached HTML for the given URL, or {@code null}.
+	 */
+	public String get(final String url) {
+		final String cached = getIfPresent(url);
+		if (cached != null)
+			return cached;
+
+		final File file = file(url);
+		if (!file.isFile() || System.currentTimeMillis() - file.lastModified() > maxAge)
+			return null;
+
+		final Page page = read(file);
+		if (page == null)
+			return null;
+		remember(url, page.getHtml());
+		return page.getHtml();
+	}
+
+	/**
+	 * Read a page from disk regardless of its age, e.g. to revalidate an
+	 * expired page.
+	 *
+	 * @return The persisted page for the given URL, or {@code null}.
+	 */
+	public Page getExpired(final String url) {
+		final File file = file(url);
+		return file.isFile() ? read(file) : null;
+	}
+
+	/**
+	 * Cache a page in memory and, if requested, on disk.
+	 *
+	 * @param persist Whether to write the page to disk. Pages which are only
+	 *            placeholders, e.g. for a failed request, should not be
+	 *            persisted.
+	 */
+	public void put(final String url, final String html, final boolean persist) {
+		remember(url, html);
+		if (persist)
+			write(url, new Page(html, null, 0));
+	}
+
+	/**
+	 * Cache a page in memory and on disk, together with its validators. This
+	 * also renews a revalidated page.
+	 */
+	public void put(final String url, final Page page) {
+		remember(url, page.getHtml());
+		write(url, page);
+	}
+
+	/**
+	 * Delete all long expired pages from disk. Expired pages are kept for a
+	 * while to be revalidated, so this should be called occasionally, off the
+	 * EDT.
+	 */
+	public void pruneExpired() {
+		final File[] files = dir.listFiles();
+		if (files == null)
+			return;
+		final long now = System.currentTimeMillis();
+		for (final File file : files) {
+			if (now - file.lastModified() > PRUNE_AGE_FACTOR * maxAge && !file.delete())
+				logService.warn("Could not delete expired Javadoc: " + file);
+		}
+	}
+
+	/**
+	 * @return The approximate number of bytes currently held in memory.
+	 */
+	public synchronized long getMemoryUsed() {
+		return memoryUsed;
+	}
+
+	// -- Helper methods --
+
+	private Page read(final File file) {
+		try {
+			final String content = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+			if (!content.startsWith(MAGIC + "\n"))
+				return new Page(content, null, 0);
+
+			final int etagEnd = content.indexOf('\n', MAGIC.length() + 1);
+			final int lastModifiedEnd = etagEnd < 0 ? -1 : content.indexOf('\n', etagEnd + 1);
+			if (lastModifiedEnd < 0)
+				throw new IOException("Truncated header");
+			final String etag = content.substring(MAGIC.length() + 1, etagEnd);
+			final long lastModified = Long.parseLong(content.substring(etagEnd + 1, lastModifiedEnd));
+			return new Page(content.substring(lastModifiedEnd + 1), etag.isEmpty() ? null : etag, lastModified);
+		} catch (final IOException | NumberFormatException exc) {
+			logService.warn("Could not read cached Javadoc: " + file, exc);
+			return null;
+		}
+	}
+
+	private void write(final String url, final Page page) {
+		File tmp = null;
+		try {
+			if (!dir.isDirectory() && !dir.mkdirs())
+				throw new IOException("Could not create directory: " + dir);
+
+			// Write to a temporary file first, so that concurrent readers never
+			// see a partial page.
+			final File file = file(url);
+			tmp = File.createTempFile(file.getName(), ".tmp", dir);
+			final String etag = page.getETag() == null ? "" : page.getETag();
+			final String content = MAGIC + "\n" + etag + "\n" + page.getLastModified() + "\n" + page.getHtml();
+			Files.write(tmp.toPath(), content.getBytes(StandardCharsets.UTF_8));
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException exc) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (final IOException exc) {
+			logService.warn("Could not write cached Javadoc for: " + url, exc);
+			if (tmp != null && tmp.exists() && !tmp.delete())
+				tmp.deleteOnExit();
+		}
+	}
+
+	/**
+	 * Keep a page in memory, evicting the least recently used pages until the
+	 * memory limit is met again.
+	 */
+	private synchronized void remember(final String url, final String html) {
+		final String previous = pages.put(url, html);
+		if (previous != null)
+			memoryUsed -= weight(url, previous);
+		memoryUsed += weight(url, html);
+
+		final Iterator<Map.Entry<String, String>> eldest = pages.entrySet().iterator();
+		while (memoryUsed > memoryLimit && eldest.hasNext()) {
+			final Map.Entry<String, String> entry = eldest.next();
+			// Never evict the page just added
+			if (entry.getKey().equals(url))
+				break;
+			memoryUsed -= weight(entry.getKey(), entry.getValue());
+			eldest.remove();
+		}
+	}
+
+	private static long weight(final String url, final String html) {
+		return 2L * (url.length() + html.length()) + ENTRY_OVERHEAD;
+	}
+
+	/**
+	 * @return The file persisting the page of the given URL, named by a
+	 *         digest of the URL.
+	 */
+	private File file(final String url) {
+		try {
+			final byte[] digest = MessageDigest.getInstance("SHA-1").digest(url.getBytes(StandardCharsets.UTF_8));
+			return new File(dir, String.format("%040x", new BigInteger(1, digest)) + ".html");
+		} catch (final NoSuchAlgorithmException exc) {
+			// Every Java platform is required to support SHA-1
+			throw new IllegalStateException(exc);
+		}
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * A persisted page with the validators it was served with.
+	 */
+	public static class Page {
+
+		private final String html;
+		private final String etag;
+		private final long lastModified;
+
+		/**
+		 * @param etag Entity tag of the page, or {@code null}
+		 * @param lastModified Modification time of the page, or 0
+		 */
+		public Page(final String html, final String etag, final long lastModified) {
+			this.html = html;
+			this.etag = etag;
+			this.lastModified = lastModified;
+		}
+
+		public String getHtml() {
+			return html;
+		}
+
+		public String getETag() {
+			return etag;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+}
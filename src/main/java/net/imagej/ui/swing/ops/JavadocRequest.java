@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+/**
+ * A single request for the Javadoc details of a class, passed to each
+ * {@link JavadocSource} in turn. A request may carry an expired cached copy of
+ * the page, so that sources can revalidate it instead of reading it again;
+ * sources record the validators of the page they return. A request can
+ * be aborted from any thread, which also aborts any blocking I/O that a source
+ * registered with {@link #onAbort(Runnable)}.
+ */
+public class JavadocRequest {
+
+	// -- Fields --
+
+	private final String path;
+	private JavadocCache.Page cached;
+	private String etag;
+	private long lastModified;
+	private boolean aborted;
+	private Runnable abortAction;
+
+	// -- Constructor --
+
+	/**
+	 * @param path Path of the class's Javadoc page, as described in
+	 *            {@link JavadocSource#getDetails}
+	 */
+	public JavadocRequest(final String path) {
+		this.path = path;
+	}
+
+	// -- JavadocRequest methods --
+
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * @return The expired copy of the page, or {@code null}.
+	 */
+	public synchronized JavadocCache.Page getCached() {
+		return cached;
+	}
+
+	/**
+	 * Set the expired copy of the page to revalidate, adopting its
+	 * validators.
+	 */
+	public synchronized void setCached(final JavadocCache.Page cached) {
+		this.cached = cached;
+		etag = cached == null ? null : cached.getETag();
+		lastModified = cached == null ? 0 : cached.getLastModified();
+	}
+
+	/**
+	 * @return The entity tag of the page, or {@code null} if unknown.
+	 */
+	public synchronized String getETag() {
+		return etag;
+	}
+
+	/**
+	 * @return The modification time of the page, or 0 if unknown.
+	 */
+	public synchronized long getLastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Record the validators of the page returned for this request.
+	 */
+	public synchronized void setValidators(final String etag, final long lastModified) {
+		this.etag = etag;
+		this.lastModified = lastModified;
+	}
+
+	/**
+	 * Abort this request, running the current abort action if there is one.
+	 */
+	public void abort() {
+		final Runnable action;
+		synchronized (this) {
+			aborted = true;
+			action = abortAction;
+			abortAction = null;
+		}
+		if (action != null)
+			action.run();
+	}
+
+	public synchronized boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * Set the action to run when this request is aborted, replacing any
+	 * previous action. If this request is already aborted, the action is run
+	 * immediately.
+	 *
+	 * @param action Action to run, or {@code null} to clear the action
+	 */
+	public void onAbort(final Runnable action) {
+		synchronized (this) {
+			if (!aborted) {
+				abortAction = action;
+				return;
+			}
+		}
+		if (action != null)
+			action.run();
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.io.IOException;
+
+import org.jsoup.nodes.Document;
+import org.jsoup.select.Elements;
+
+/**
+ * A place to read the Javadoc of {@link net.imagej.ops.Op} classes from, for
+ * the {@link OpFinder} details pane.
+ */
+public interface JavadocSource {
+
+	/**
+	 * Read the details of the page of the given request. The
+	 * {@link JavadocRequest#getPath() path} of a page is relative to the
+	 * Javadoc root, without extension. Nested classes are separated by an
+	 * escaped '.', e.g. {@code "net/imagej/ops/Ops%2EMath"}.
+	 *
+	 * @return The extracted details of the page, or {@code null} if this
+	 *         source does not have the page.
+	 * @throws IOException If the page could not be read, or the request was
+	 *             aborted.
+	 */
+	String getDetails(JavadocRequest request) throws IOException;
+
+	/**
+	 * The full HTML for Javadoc pages contains unnecessary elements, like
+	 * menus and headers, that pollute the HTML display. The
+	 * "div.contentContainer" has the meat of the Javadoc that we're
+	 * interested in.
+	 *
+	 * @return The HTML of the interesting parts of the given page.
+	 */
+	static String extractDetails(final Document doc) {
+		final Elements elements = doc.select("div.header");
+		elements.addAll(doc.select("div.contentContainer"));
+		return elements.html();
+	}
+}
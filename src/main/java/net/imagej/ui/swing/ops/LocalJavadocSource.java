@@ -0,0 +1,194 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.jsoup.Jsoup;
+import org.scijava.log.LogService;
+
+/**
+ * {@link JavadocSource} reading pages from locally installed Javadoc, so the
+ * details pane works without network access. Each root may be a
+ * {@code -javadoc.jar}, an exploded Javadoc directory, or a directory
+ * containing any number of both.
+ * <p>
+ * All roots are indexed once, on first use. Jars are then kept open for the
+ * life of this source, so each page is read by inflating a single entry.
+ * </p>
+ */
+public class LocalJavadocSource implements JavadocSource {
+
+	// -- Constants --
+
+	public static final String JAR_SUFFIX = "-javadoc.jar";
+
+	// -- Fields --
+
+	private final List<File> roots;
+	private final LogService logService;
+
+	// Location of each page, keyed by its path relative to the Javadoc root
+	private Map<String, Page> pages;
+	private final List<ZipFile> jars = new ArrayList<>();
+
+	// -- Constructor --
+
+	public LocalJavadocSource(final List<File> roots, final LogService logService) {
+		this.roots = roots;
+		this.logService = logService;
+	}
+
+	// -- JavadocSource methods --
+
+	@Override
+	public String getDetails(final JavadocRequest request) throws IOException {
+		final Page page = index().get(request.getPath().replace("%2E", ".") + ".html");
+		if (page == null)
+			return null;
+		// Local pages need no revalidation
+		request.setValidators(null, 0);
+		return JavadocSource.extractDetails(Jsoup.parse(page.read(), ""));
+	}
+
+	// -- Helper methods --
+
+	private synchronized Map<String, Page> index() {
+		if (pages != null)
+			return pages;
+
+		pages = new HashMap<>();
+		for (final File root : roots) {
+			try {
+				if (root.isFile() && root.getName().endsWith(JAR_SUFFIX))
+					indexJar(root);
+				else if (root.isDirectory())
+					indexDirectory(root);
+			} catch (final IOException exc) {
+				logService.warn("Could not index local Javadoc: " + root, exc);
+			}
+		}
+		return pages;
+	}
+
+	private void indexJar(final File file) throws IOException {
+		final ZipFile jar = new ZipFile(file);
+		jars.add(jar);
+		final Enumeration<? extends ZipEntry> entries = jar.entries();
+		while (entries.hasMoreElements()) {
+			final ZipEntry entry = entries.nextElement();
+			if (!entry.isDirectory() && entry.getName().endsWith(".html") && !pages.containsKey(entry.getName()))
+				pages.put(entry.getName(), new Page(jar, entry, null));
+		}
+	}
+
+	/**
+	 * Index all jars below the given directory, and all Javadoc trees, which
+	 * are recognized by their package list.
+	 */
+	private void indexDirectory(final File dir) throws IOException {
+		Files.walkFileTree(dir.toPath(), new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult preVisitDirectory(final Path path, final BasicFileAttributes attrs)
+					throws IOException {
+				if (!Files.isRegularFile(path.resolve("package-list"))
+						&& !Files.isRegularFile(path.resolve("element-list")))
+					return FileVisitResult.CONTINUE;
+
+				indexTree(path);
+				return FileVisitResult.SKIP_SUBTREE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs) throws IOException {
+				if (path.getFileName().toString().endsWith(JAR_SUFFIX))
+					indexJar(path.toFile());
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private void indexTree(final Path root) throws IOException {
+		Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+			@Override
+			public FileVisitResult visitFile(final Path path, final BasicFileAttributes attrs) {
+				final String name = root.relativize(path).toString().replace(File.separatorChar, '/');
+				if (name.endsWith(".html") && !pages.containsKey(name))
+					pages.put(name, new Page(null, null, path));
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * A page inside a jar, or a file.
+	 */
+	private static class Page {
+
+		private final ZipFile jar;
+		private final ZipEntry entry;
+		private final Path file;
+
+		private Page(final ZipFile jar, final ZipEntry entry, final Path file) {
+			this.jar = jar;
+			this.entry = entry;
+			this.file = file;
+		}
+
+		private String read() throws IOException {
+			if (file != null)
+				return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+			try (final InputStream in = jar.getInputStream(entry)) {
+				final byte[] bytes = new byte[(int) Math.max(entry.getSize(), 0)];
+				int n = 0;
+				while (n < bytes.length) {
+					final int read = in.read(bytes, n, bytes.length - n);
+					if (read < 0)
+						break;
+					n += read;
+				}
+				return new String(bytes, 0, n, StandardCharsets.UTF_8);
+			}
+		}
+	}
+}
@@ -0,0 +1,993 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.regex.Pattern;
+
+import net.imagej.ops.Namespace;
+import net.imagej.ops.Op;
+import net.imagej.ops.OpInfo;
+import net.imagej.ops.OpUtils;
+
+import org.scijava.command.CommandInfo;
+import org.scijava.module.ModuleItem;
+
+/**
+ * Immutable, display-ready description of all available {@link Op}s, along
+ * with the {@link OpSearchIndex} dictionaries used to filter them. Building a
+ * catalog is the expensive part of opening the {@link OpFinder}, so it is
+ * kept separate from the Swing components and can be persisted with an
+ * {@link OpCatalogCache}.
+ * <p>
+ * The catalog is stored by column rather than as a graph of objects. Every
+ * node of the {@link Namespace} hierarchy has a dense integer id: ops come
+ * first, in the order they were given, followed by the namespace nodes,
+ * starting with the root. An op's node id is also its id in the advanced
+ * index. The display strings of each node are indices into a table of
+ * interned strings, and the children of each node are kept in one index
+ * array per mode.
+ * </p>
+ * <p>
+ * Every op is available in advanced mode. Ops meeting the criteria for
+ * simple mode, and the namespaces containing them, are also members of the
+ * simple mode hierarchy; the simple ops are indexed, in the same order, in
+ * the simple index.
+ * </p>
+ */
+public class OpCatalog {
+
+	// -- Constants --
+
+	// Separates the inputs in an op's signature
+	private static final Pattern INPUT_SEPARATOR = Pattern.compile(", ");
+
+	// Smallest number of ops processed by a single fork-join task
+	private static final int MIN_TASK_SIZE = 16;
+
+	// Display strings of the root node
+	private static final String ROOT_NAME = "ops";
+	private static final String ROOT_CODE_CALL = "# @OpService ops";
+	private static final String ROOT_REFERENCE_CLASS = "net.imagej.ops.OpService";
+
+	// -- Fields --
+
+	// Interned strings, and the index of each node's strings in the table
+	private final String[] strings;
+	private final int[] names;
+	private final int[] simpleNames;
+	private final int[] codeCalls;
+	private final int[] referenceClasses;
+
+	// CommandInfo of each op
+	private final CommandInfo[] infos;
+
+	// Hierarchy, shared by both modes except for the order of children
+	private final int[] parents;
+	private final Children advChildren;
+	private final Children smplChildren;
+
+	// Simple mode membership of each node, and the node of each simple index id
+	private final long[] simpleNodes;
+	private final int[] simpleOps;
+
+	private final OpSearchIndex advIndex;
+	private final OpSearchIndex smplIndex;
+
+	// -- Constructor --
+
+	/**
+	 * @param strings Table of all display strings
+	 * @param names Advanced mode display name of each node
+	 * @param simpleNames Simple mode display name of each node
+	 * @param codeCalls Code call of each node, empty for namespaces
+	 * @param referenceClasses Referenced class of each node, empty for
+	 *            namespaces
+	 * @param infos {@link CommandInfo} of each op
+	 * @param advChildren Children of each node in advanced mode, which
+	 *            includes all nodes
+	 * @param smplChildren Children of each node in simple mode
+	 */
+	OpCatalog(final String[] strings, final int[] names, final int[] simpleNames,
+		final int[] codeCalls, final int[] referenceClasses,
+		final CommandInfo[] infos, final Children advChildren,
+		final Children smplChildren, final OpSearchIndex advIndex,
+		final OpSearchIndex smplIndex)
+	{
+		this.strings = strings;
+		this.names = names;
+		this.simpleNames = simpleNames;
+		this.codeCalls = codeCalls;
+		this.referenceClasses = referenceClasses;
+		this.infos = infos;
+		this.advChildren = advChildren;
+		this.smplChildren = smplChildren;
+		this.advIndex = advIndex;
+		this.smplIndex = smplIndex;
+
+		// Siblings are only sorted once their parent is first expanded
+		advChildren.sortBy(siblingOrder(names));
+		smplChildren.sortBy(siblingOrder(simpleNames));
+
+		// Derive the parents and simple mode membership from the hierarchies,
+		// which does not depend on the order of siblings
+		parents = new int[names.length];
+		Arrays.fill(parents, -1);
+		for (int node = 0; node < names.length; node++) {
+			for (int i = advChildren.offsets[node]; i < advChildren.offsets[node + 1]; i++)
+				parents[advChildren.nodes[i]] = node;
+		}
+
+		simpleNodes = new long[(names.length + 63) >>> 6];
+		if (names.length > infos.length)
+			simpleNodes[getRoot() >>> 6] |= 1L << getRoot();
+		for (final int child : smplChildren.nodes)
+			simpleNodes[child >>> 6] |= 1L << child;
+
+		int smplCount = 0;
+		for (int op = 0; op < infos.length; op++) {
+			if (isSimple(op))
+				smplCount++;
+		}
+		simpleOps = new int[smplCount];
+		smplCount = 0;
+		for (int op = 0; op < infos.length; op++) {
+			if (isSimple(op))
+				simpleOps[smplCount++] = op;
+		}
+	}
+
+	// -- OpCatalog methods --
+
+	/**
+	 * @return The number of ops in this catalog. Valid op ids are
+	 *         {@code 0 ... getOpCount() - 1}.
+	 */
+	public int getOpCount() {
+		return infos.length;
+	}
+
+	/**
+	 * @return The number of nodes in this catalog, including all ops.
+	 */
+	public int getNodeCount() {
+		return names.length;
+	}
+
+	/**
+	 * @return The id of the root node, whose children are the top-level
+	 *         namespaces.
+	 */
+	public int getRoot() {
+		return infos.length;
+	}
+
+	/**
+	 * @return true if the given node is an op, false if it is a namespace.
+	 */
+	public boolean isOp(final int node) {
+		return node < infos.length;
+	}
+
+	/**
+	 * @return Whether the given node is displayed in simple mode.
+	 */
+	public boolean isSimple(final int node) {
+		return (simpleNodes[node >>> 6] & (1L << node)) != 0;
+	}
+
+	/**
+	 * @param id An id of the search index for the given mode
+	 * @return The node of the op with the given index id.
+	 */
+	public int getOp(final boolean simple, final int id) {
+		return simple ? simpleOps[id] : id;
+	}
+
+	/**
+	 * @return The display name of the given node: for ops, the full signature
+	 *         in advanced mode or the simplified signature in simple mode.
+	 */
+	public String getName(final boolean simple, final int node) {
+		return strings[simple ? simpleNames[node] : names[node]];
+	}
+
+	/**
+	 * @return The script snippet to invoke the given op, or an empty string
+	 *         for namespaces.
+	 */
+	public String getCodeCall(final int node) {
+		return strings[codeCalls[node]];
+	}
+
+	/**
+	 * @return The {@link Op} class referenced by the given node, or an empty
+	 *         string for namespaces.
+	 */
+	public String getReferenceClass(final int node) {
+		return strings[referenceClasses[node]];
+	}
+
+	/**
+	 * @return The {@link CommandInfo} of the given op, or {@code null} for
+	 *         namespaces.
+	 */
+	public CommandInfo getCommandInfo(final int node) {
+		return isOp(node) ? infos[node] : null;
+	}
+
+	/**
+	 * @return The parent of the given node, or -1 for the root.
+	 */
+	public int getParent(final int node) {
+		return parents[node];
+	}
+
+	/**
+	 * @return The number of children of the given node in the given mode.
+	 */
+	public int getChildCount(final boolean simple, final int node) {
+		return children(simple).count(node);
+	}
+
+	/**
+	 * @return The {@code index}th child of the given node in the given mode.
+	 */
+	public int getChild(final boolean simple, final int node, final int index) {
+		return children(simple).get(node, index);
+	}
+
+	/**
+	 * @return The search index for either the simple or advanced mode.
+	 */
+	public OpSearchIndex getIndex(final boolean simple) {
+		return simple ? smplIndex : advIndex;
+	}
+
+	/**
+	 * Build a catalog from the given {@link OpInfo}s. Ops without a valid name
+	 * will be skipped. Ops with no namespace will be put in a
+	 * {@link OpFinder#NO_NAMESPACE} category.
+	 * <p>
+	 * The per-op display strings and search dictionaries are built in
+	 * parallel, using all available cores. The result is identical to a
+	 * sequential build: ops keep the order of {@code infos}, and when several
+	 * ops share a simple name, the first one is kept in simple mode.
+	 * </p>
+	 */
+	public static OpCatalog build(final Collection<OpInfo> infos) {
+		final OpInfo[] ops = infos.toArray(new OpInfo[infos.size()]);
+		final Signature[] signatures = new Signature[ops.length];
+
+		final ForkJoinPool pool = createPool();
+		try {
+			// Format the signatures of all ops
+			final int threshold = Math.max(MIN_TASK_SIZE, ops.length / (4 * pool.getParallelism()));
+			pool.invoke(new SignatureTask(ops, signatures, 0, ops.length, threshold));
+
+			// Assign ids in the order of the given infos. This is the only
+			// order-dependent step, so it is done sequentially.
+			int opCount = 0;
+			for (final Signature signature : signatures) {
+				if (signature != null)
+					opCount++;
+			}
+
+			final int[] opParents = new int[opCount];
+
+			// Namespace nodes are numbered from 0 until all ops are known,
+			// starting with the root
+			final Map<String, Integer> namespaces = new HashMap<>();
+			final List<String> nsNames = new ArrayList<>();
+			final List<Integer> nsParents = new ArrayList<>();
+			nsNames.add(ROOT_NAME);
+			nsParents.add(-1);
+
+			final Set<String> smplNames = new HashSet<>();
+			int op = 0;
+			int smplCount = 0;
+			for (final Signature signature : signatures) {
+				if (signature == null)
+					continue;
+
+				signature.advId = op;
+
+				// If this Op matches our criteria for inclusion in simple mode,
+				// it is also added to the simple dictionaries.
+				final boolean simple = signature.hasSimpleInput && smplNames.add(signature.simpleName);
+				if (simple)
+					signature.smplId = smplCount++;
+
+				opParents[op] = buildNamespaceHierarchy(signature.path, namespaces, nsNames, nsParents);
+				op++;
+			}
+
+			// Build the dictionaries which will be used for filtering
+			final DictionaryTask dictionaries = new DictionaryTask(signatures, 0, signatures.length, threshold);
+			pool.invoke(dictionaries);
+
+			return assemble(signatures, opCount, opParents, nsNames, nsParents, dictionaries.advBuilder.build(),
+					dictionaries.smplBuilder.build());
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	/**
+	 * Derive a catalog with the given ops added and removed, e.g. when
+	 * plugins are added or removed at runtime. Ops are identified by their
+	 * {@link #getReferenceClass referenced class}; adding an op whose class is
+	 * already in this catalog replaces it.
+	 * <p>
+	 * Only the added ops are formatted and tokenized. Retained ops keep their
+	 * display strings, and their entries in the search indices are renumbered
+	 * rather than built again. The result is the same as {@link #build
+	 * building} a catalog from the retained ops, in their current order,
+	 * followed by the added ops; except that a namespace keeps the spelling it
+	 * was created with, as long as it contains any op.
+	 * </p>
+	 *
+	 * @param added Ops to add
+	 * @param removed Referenced classes of the ops to remove
+	 * @return The updated catalog, or this catalog if nothing changed.
+	 */
+	public OpCatalog update(final Collection<OpInfo> added, final Collection<String> removed) {
+		final List<Signature> addedSignatures = new ArrayList<>();
+		final Set<String> replaced = new HashSet<>(removed);
+		for (final OpInfo info : added) {
+			final Signature signature = createSignature(info);
+			if (signature != null) {
+				addedSignatures.add(signature);
+				replaced.add(signature.delegateClass);
+			}
+		}
+
+		// Renumber the retained ops, keeping their order
+		final int[] opIds = new int[infos.length];
+		int retained = 0;
+		for (int op = 0; op < infos.length; op++)
+			opIds[op] = replaced.contains(getReferenceClass(op)) ? -1 : retained++;
+		if (addedSignatures.isEmpty() && retained == infos.length)
+			return this;
+
+		final int opCount = retained + addedSignatures.size();
+		final Signature[] signatures = new Signature[opCount];
+		final int[] opParents = new int[opCount];
+
+		// Retained simple ops stay simple. An op hidden in simple mode behind a
+		// removed op of the same simple name may take its place.
+		final Set<String> smplNames = new HashSet<>();
+		final Set<String> vacated = new HashSet<>();
+		for (int op = 0; op < infos.length; op++) {
+			if (!isSimple(op))
+				continue;
+			if (opIds[op] < 0)
+				vacated.add(getName(true, op));
+			else
+				smplNames.add(getName(true, op));
+		}
+		final boolean[] promoted = new boolean[opCount];
+		for (int op = 0; op < infos.length; op++) {
+			final int id = opIds[op];
+			if (id < 0)
+				continue;
+			final Signature signature = new Signature();
+			signature.info = infos[op];
+			signature.delegateClass = getReferenceClass(op);
+			signature.name = getName(false, op);
+			signature.codeCall = getCodeCall(op);
+			signature.simpleName = getName(true, op);
+			signature.advId = id;
+			if (!isSimple(op) && vacated.contains(signature.simpleName) && hasSimpleInput(infos[op]) &&
+					smplNames.add(signature.simpleName))
+				promoted[id] = true;
+			signatures[id] = signature;
+			opParents[id] = parents[op] - infos.length;
+		}
+
+		// Namespaces keep their numbers; new ones are numbered after them
+		final Map<String, Integer> namespaces = new HashMap<>();
+		final List<String> nsNames = new ArrayList<>();
+		final List<Integer> nsParents = new ArrayList<>();
+		final String[] nsKeys = new String[names.length - infos.length];
+		for (int ns = 0; ns < nsKeys.length; ns++) {
+			final int node = infos.length + ns;
+			nsNames.add(getName(false, node));
+			nsParents.add(ns == 0 ? -1 : parents[node] - infos.length);
+			if (ns == 0)
+				continue;
+			final int parent = parents[node] - infos.length;
+			nsKeys[ns] = (parent == 0 ? "" : nsKeys[parent]) + getName(false, node).toLowerCase(Locale.getDefault()) + ".";
+			namespaces.put(nsKeys[ns], ns);
+		}
+		for (int i = 0; i < addedSignatures.size(); i++) {
+			final Signature signature = addedSignatures.get(i);
+			signature.advId = retained + i;
+			if (signature.hasSimpleInput && smplNames.add(signature.simpleName))
+				promoted[signature.advId] = true;
+			signatures[signature.advId] = signature;
+			opParents[signature.advId] = buildNamespaceHierarchy(signature.path, namespaces, nsNames, nsParents);
+		}
+
+		// Drop namespaces left without ops. Parents are numbered before their
+		// children, so renumbering keeps them first.
+		final boolean[] used = new boolean[nsNames.size()];
+		used[0] = true;
+		for (final int parent : opParents) {
+			for (int ns = parent; !used[ns]; ns = nsParents.get(ns))
+				used[ns] = true;
+		}
+		final int[] nsIds = new int[used.length];
+		final List<String> usedNames = new ArrayList<>();
+		final List<Integer> usedParents = new ArrayList<>();
+		for (int ns = 0; ns < used.length; ns++) {
+			nsIds[ns] = -1;
+			if (!used[ns])
+				continue;
+			nsIds[ns] = usedNames.size();
+			usedNames.add(nsNames.get(ns));
+			usedParents.add(ns == 0 ? -1 : nsIds[nsParents.get(ns)]);
+		}
+		for (int op = 0; op < opCount; op++)
+			opParents[op] = nsIds[opParents[op]];
+
+		// Renumber the simple ops, and index the newly simple ones
+		final OpSearchIndex.Builder advBuilder = new OpSearchIndex.Builder();
+		final OpSearchIndex.Builder smplBuilder = new OpSearchIndex.Builder();
+		final int[] smplIds = new int[simpleOps.length];
+		Arrays.fill(smplIds, -1);
+		int smplCount = 0;
+		int s = 0;
+		for (int op = 0; op < opCount; op++) {
+			final Signature signature = signatures[op];
+			while (s < simpleOps.length && opIds[simpleOps[s]] < op)
+				s++;
+			if (s < simpleOps.length && opIds[simpleOps[s]] == op) {
+				smplIds[s] = signature.smplId = smplCount++;
+			} else if (promoted[op]) {
+				signature.smplId = smplCount++;
+				smplBuilder.add(signature.smplId, keywords(signature.simpleName));
+			}
+			if (op >= retained)
+				advBuilder.add(op, keywords(signature.delegateClass), '.');
+		}
+
+		return assemble(signatures, opCount, opParents, usedNames, usedParents,
+				advIndex.update(opIds, advBuilder, opCount), smplIndex.update(smplIds, smplBuilder, smplCount));
+	}
+
+	/**
+	 * The remaining accessors expose the raw columns for persisting this
+	 * catalog; callers must not modify them.
+	 */
+	String[] strings() {
+		return strings;
+	}
+
+	int[] names() {
+		return names;
+	}
+
+	int[] simpleNames() {
+		return simpleNames;
+	}
+
+	int[] codeCalls() {
+		return codeCalls;
+	}
+
+	int[] referenceClasses() {
+		return referenceClasses;
+	}
+
+	Children children(final boolean simple) {
+		return simple ? smplChildren : advChildren;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Create a {@link ForkJoinPool} using all available cores. Worker threads
+	 * share the calling thread's context {@link ClassLoader}, which is needed
+	 * to load {@link Op} classes in plugin-based environments.
+	 */
+	static ForkJoinPool createPool() {
+		final ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		return new ForkJoinPool(Runtime.getRuntime().availableProcessors(), new ForkJoinWorkerThreadFactory() {
+
+			@Override
+			public ForkJoinWorkerThread newThread(final ForkJoinPool p) {
+				final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+				thread.setContextClassLoader(loader);
+				return thread;
+			}
+		}, null, false);
+	}
+
+	/**
+	 * Compute the display strings of a single op.
+	 *
+	 * @return The op's signature, or {@code null} if the op has no valid name.
+	 */
+	private static Signature createSignature(final OpInfo info) {
+		final String opName = getName(info.getSimpleName(), info.getName());
+
+		if (opName.isEmpty())
+			return null;
+
+		final String namespacePath = getName(info.getNamespace(), OpFinder.NO_NAMESPACE);
+		final CommandInfo cInfo = info.cInfo();
+
+		final Signature signature = new Signature();
+		signature.info = cInfo;
+		signature.path = namespacePath + "." + opName;
+		signature.delegateClass = cInfo.getDelegateClassName();
+		signature.name = OpUtils.simpleString(cInfo);
+		signature.codeCall = OpUtils.opCall(cInfo);
+		signature.simpleName = simplifyTypes(cInfo, signature.name);
+		signature.hasSimpleInput = hasSimpleInput(cInfo);
+		return signature;
+	}
+
+	/**
+	 * Lay out the columns of a catalog: ops first, in the order of their ids,
+	 * then namespaces.
+	 *
+	 * @param signatures Signature of each op, with its ids assigned; or
+	 *            {@code null} for skipped ops
+	 * @param opCount Number of ops
+	 * @param opParents Namespace of each op
+	 * @param nsNames Name of each namespace, starting with the root
+	 * @param nsParents Parent of each namespace, numbered before it
+	 */
+	private static OpCatalog assemble(final Signature[] signatures, final int opCount, final int[] opParents,
+			final List<String> nsNames, final List<Integer> nsParents, final OpSearchIndex advIndex,
+			final OpSearchIndex smplIndex) {
+		final StringTable table = new StringTable();
+		final CommandInfo[] cInfos = new CommandInfo[opCount];
+
+		// Lay out the node columns: ops first, then namespaces
+		final int nodeCount = opCount + nsNames.size();
+		final int[] names = new int[nodeCount];
+		final int[] simpleNames = new int[nodeCount];
+		final int[] codeCalls = new int[nodeCount];
+		final int[] referenceClasses = new int[nodeCount];
+		final int[] parents = new int[nodeCount];
+		final boolean[] simpleNodes = new boolean[nodeCount];
+		for (final Signature signature : signatures) {
+			if (signature == null)
+				continue;
+			final int node = signature.advId;
+			cInfos[node] = signature.info;
+			names[node] = table.intern(signature.name);
+			simpleNames[node] = table.intern(signature.simpleName);
+			codeCalls[node] = table.intern(signature.codeCall);
+			referenceClasses[node] = table.intern(signature.delegateClass);
+			parents[node] = opCount + opParents[node];
+		}
+		final int empty = table.intern("");
+		for (int ns = 0; ns < nsNames.size(); ns++) {
+			final int node = opCount + ns;
+			names[node] = simpleNames[node] = table.intern(nsNames.get(ns));
+			codeCalls[node] = empty;
+			referenceClasses[node] = empty;
+			parents[node] = ns == 0 ? -1 : opCount + nsParents.get(ns);
+		}
+		codeCalls[opCount] = table.intern(ROOT_CODE_CALL);
+		referenceClasses[opCount] = table.intern(ROOT_REFERENCE_CLASS);
+
+		// Namespaces are shown in simple mode only if they contain a simple
+		// op. The root is always shown.
+		simpleNodes[opCount] = true;
+		for (final Signature signature : signatures) {
+			if (signature == null || signature.smplId < 0)
+				continue;
+			for (int n = signature.advId; n >= 0 && !simpleNodes[n]; n = parents[n])
+				simpleNodes[n] = true;
+		}
+
+		final String[] strings = table.toArray();
+		final Children advChildren = Children.build(parents, null);
+		final Children smplChildren = Children.build(parents, simpleNodes);
+
+		return new OpCatalog(strings, names, simpleNames, codeCalls, referenceClasses, cInfos, advChildren,
+				smplChildren, advIndex, smplIndex);
+	}
+
+	/**
+	 * Helper method to ensure all nodes for a given namespace hierarchy exist.
+	 * For example, if given an input string "math.transform.fft", nodes for
+	 * "math", "transform" and "fft" would be created. The "fft" node would be
+	 * returned.
+	 *
+	 * @param namespace Linear string representation of namespace hierarchy
+	 * @param namespaces Map of lowercase namespace paths to their nodes
+	 * @param nsNames Name of each namespace node
+	 * @param nsParents Parent of each namespace node
+	 * @return The node for the final "leaf" namespace in the given hierarchy
+	 *         (e.g. the node to add any concrete Op implementations)
+	 */
+	private static int buildNamespaceHierarchy(final String namespace, final Map<String, Integer> namespaces,
+			final List<String> nsNames, final List<Integer> nsParents) {
+		final StringBuilder sb = new StringBuilder();
+
+		int prevParent = 0;
+		// Iterate over all namespaces in the namespace string
+		// For each namespace, look up the corresponding node, creating it if
+		// the node does not already exist.
+		for (final String ns : namespace.split("\\.")) {
+			sb.append(ns).append('.');
+			final String key = sb.toString().toLowerCase(Locale.getDefault());
+			Integer nsNode = namespaces.get(key);
+			if (nsNode == null) {
+				nsNode = nsNames.size();
+				namespaces.put(key, nsNode);
+				nsNames.add(ns);
+				nsParents.add(prevParent);
+			}
+			prevParent = nsNode;
+		}
+
+		return prevParent;
+	}
+
+	/**
+	 * Helper method to get a properly formatted name. {@code name} is tried
+	 * first, then {@code backupName} if needed (i.e. {@code name} is
+	 * {@code null} or empty).
+	 * <p>
+	 * The resulting string is trimmed.
+	 * </p>
+	 */
+	private static String getName(String name, final String backupName) {
+		if (name == null || name.isEmpty())
+			name = backupName;
+
+		return name == null ? "" : name.trim();
+	}
+
+	/**
+	 * HACK
+	 * Simplify the signature of an Op for display in simple mode. The
+	 * result only shows the Op's name and its required inputs, each input's
+	 * type boiled down to an "Image" or "Number" label where possible; see
+	 * {@link TypeClassifier}.
+	 *
+	 * @param name The Op's signature, as given by
+	 *            {@link OpUtils#simpleString(CommandInfo)}
+	 */
+	static String simplifyTypes(final CommandInfo info, final String name) {
+		// Skip the return variables, which may be parenthesized themselves
+		final int returns = name.indexOf(" <= ");
+		final int open = name.indexOf('(', returns < 0 ? 0 : returns);
+		final int close = name.lastIndexOf(')');
+		if (open < 0 || close < open)
+			return name;
+
+		final StringBuilder sb = new StringBuilder();
+		sb.append(name, name.lastIndexOf(' ', open) + 1, open + 1);
+		String separator = "";
+		for (final String input : INPUT_SEPARATOR.split(name.substring(open + 1, close))) {
+			// Remove optional parameters
+			final int space = input.lastIndexOf(' ');
+			if (input.endsWith("?") || space < 0)
+				continue;
+
+			// Keep any prefix marking e.g. in-place parameters
+			int typeStart = 0;
+			while (typeStart < space && !Character.isJavaIdentifierStart(input.charAt(typeStart)))
+				typeStart++;
+			final String inputName = input.substring(space + 1);
+
+			sb.append(separator).append(input, 0, typeStart);
+			sb.append(TypeClassifier.getLabel(getInputType(info, inputName), input.substring(typeStart, space)));
+			sb.append(' ').append(inputName);
+			separator = ", ";
+		}
+		return sb.append(')').toString();
+	}
+
+	/**
+	 * @return The type of the named input of the given {@link Op}, or
+	 *         {@code null} if it has no such input.
+	 */
+	private static Class<?> getInputType(final CommandInfo info, final String inputName) {
+		for (final ModuleItem<?> moduleItem : info.inputs()) {
+			if (inputName.equals(moduleItem.getName()))
+				return moduleItem.getType();
+		}
+		return null;
+	}
+
+	/**
+	 * HACK
+	 * @return true iff at least one of the given {@link Op}'s inputs meets the
+	 *         criteria for display in simple mode.
+	 */
+	private static boolean hasSimpleInput(final CommandInfo info) {
+		// Check that at least one of the Op's inputs is on the "simple types" white list.
+		for (final ModuleItem<?> moduleItem : info.inputs()) {
+			if (TypeClassifier.isSimpleInput(moduleItem))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * @return The order of siblings with the given display names: by name,
+	 *         then by referenced class.
+	 */
+	private Comparator<Integer> siblingOrder(final int[] displayNames) {
+		return new Comparator<Integer>() {
+
+			@Override
+			public int compare(final Integer a, final Integer b) {
+				final int v = strings[displayNames[a]].compareTo(strings[displayNames[b]]);
+				return v != 0 ? v : strings[referenceClasses[a]].compareTo(strings[referenceClasses[b]]);
+			}
+		};
+	}
+
+	/**
+	 * Normalize the given text for indexing, so that filtering is case
+	 * insensitive.
+	 */
+	private static String keywords(final String rawDict) {
+		return rawDict.toLowerCase(Locale.getDefault());
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Intermediate, per-op result of a parallel build.
+	 */
+	private static class Signature {
+
+		private CommandInfo info;
+		private String path;
+		private String delegateClass;
+		private String name;
+		private String codeCall;
+		private String simpleName;
+		private boolean hasSimpleInput;
+		private int advId = -1;
+		private int smplId = -1;
+	}
+
+	/**
+	 * Fills a range of the {@link Signature} array, splitting the range in
+	 * half until it is small enough.
+	 */
+	@SuppressWarnings("serial")
+	private static class SignatureTask extends RecursiveAction {
+
+		private final OpInfo[] ops;
+		private final Signature[] signatures;
+		private final int start;
+		private final int end;
+		private final int threshold;
+
+		private SignatureTask(final OpInfo[] ops, final Signature[] signatures, final int start, final int end,
+				final int threshold) {
+			this.ops = ops;
+			this.signatures = signatures;
+			this.start = start;
+			this.end = end;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= threshold) {
+				for (int i = start; i < end; i++)
+					signatures[i] = createSignature(ops[i]);
+			} else {
+				final int mid = (start + end) >>> 1;
+				invokeAll(new SignatureTask(ops, signatures, start, mid, threshold),
+						new SignatureTask(ops, signatures, mid, end, threshold));
+			}
+		}
+	}
+
+	/**
+	 * Builds the search dictionaries for a range of {@link Signature}s. The
+	 * two halves of a split range are built independently, then the later
+	 * half is appended to the earlier one, so posting lists stay sorted.
+	 */
+	@SuppressWarnings("serial")
+	private static class DictionaryTask extends RecursiveAction {
+
+		private final Signature[] signatures;
+		private final int start;
+		private final int end;
+		private final int threshold;
+		private OpSearchIndex.Builder advBuilder;
+		private OpSearchIndex.Builder smplBuilder;
+
+		private DictionaryTask(final Signature[] signatures, final int start, final int end, final int threshold) {
+			this.signatures = signatures;
+			this.start = start;
+			this.end = end;
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - start <= threshold) {
+				advBuilder = new OpSearchIndex.Builder();
+				smplBuilder = new OpSearchIndex.Builder();
+				for (int i = start; i < end; i++) {
+					final Signature signature = signatures[i];
+					if (signature == null)
+						continue;
+					advBuilder.add(signature.advId, keywords(signature.delegateClass), '.');
+					if (signature.smplId >= 0)
+						smplBuilder.add(signature.smplId, keywords(signature.simpleName));
+				}
+			} else {
+				final int mid = (start + end) >>> 1;
+				final DictionaryTask first = new DictionaryTask(signatures, start, mid, threshold);
+				final DictionaryTask second = new DictionaryTask(signatures, mid, end, threshold);
+				invokeAll(first, second);
+				first.advBuilder.addAll(second.advBuilder);
+				first.smplBuilder.addAll(second.smplBuilder);
+				advBuilder = first.advBuilder;
+				smplBuilder = first.smplBuilder;
+			}
+		}
+	}
+
+	/**
+	 * Children of every node in one mode. The children of each node are a
+	 * contiguous slice of one array. Each slice is sorted by name, then by
+	 * referenced class, when it is first accessed, so the cost of ordering
+	 * siblings is only paid for the namespaces that are actually expanded.
+	 */
+	static class Children {
+
+		private final int[] offsets;
+		private final int[] nodes;
+
+		// Order of siblings, and which slices are sorted
+		private Comparator<Integer> order;
+		private long[] sorted;
+
+		/**
+		 * @param offsets Start of the children of each node in {@code nodes},
+		 *            followed by the total number of children
+		 * @param nodes The children of all nodes, in any order within each
+		 *            slice
+		 */
+		Children(final int[] offsets, final int[] nodes) {
+			this.offsets = offsets;
+			this.nodes = nodes;
+		}
+
+		int count(final int node) {
+			return offsets[node + 1] - offsets[node];
+		}
+
+		synchronized int get(final int node, final int index) {
+			if ((sorted[node >>> 6] & (1L << node)) == 0) {
+				sort(node);
+				sorted[node >>> 6] |= 1L << node;
+			}
+			return nodes[offsets[node] + index];
+		}
+
+		int[] offsets() {
+			return offsets;
+		}
+
+		/**
+		 * @return A copy of the children of all nodes. Slices which were never
+		 *         accessed may be unsorted.
+		 */
+		synchronized int[] nodes() {
+			return nodes.clone();
+		}
+
+		/**
+		 * Set the order of siblings. Must be called before any child is
+		 * accessed.
+		 */
+		private synchronized void sortBy(final Comparator<Integer> siblingOrder) {
+			order = siblingOrder;
+			sorted = new long[(offsets.length + 63) >>> 6];
+		}
+
+		private void sort(final int node) {
+			final int from = offsets[node];
+			final int to = offsets[node + 1];
+			if (to - from < 2)
+				return;
+			final Integer[] siblings = new Integer[to - from];
+			for (int i = 0; i < siblings.length; i++)
+				siblings[i] = nodes[from + i];
+			Arrays.sort(siblings, order);
+			for (int i = 0; i < siblings.length; i++)
+				nodes[from + i] = siblings[i];
+		}
+
+		/**
+		 * Group the member nodes by parent. Siblings are left unsorted.
+		 *
+		 * @param members Nodes to include, or {@code null} for all nodes
+		 */
+		private static Children build(final int[] parents, final boolean[] members) {
+			final int[] offsets = new int[parents.length + 1];
+			for (int node = 0; node < parents.length; node++) {
+				if (parents[node] >= 0 && (members == null || members[node]))
+					offsets[parents[node] + 1]++;
+			}
+			for (int node = 0; node < parents.length; node++)
+				offsets[node + 1] += offsets[node];
+
+			final int[] nodes = new int[offsets[parents.length]];
+			final int[] next = Arrays.copyOf(offsets, parents.length);
+			for (int node = 0; node < parents.length; node++) {
+				if (parents[node] >= 0 && (members == null || members[node]))
+					nodes[next[parents[node]]++] = node;
+			}
+
+			return new Children(offsets, nodes);
+		}
+	}
+
+	/**
+	 * Assigns each distinct string a dense index.
+	 */
+	private static class StringTable {
+
+		private final Map<String, Integer> ids = new HashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		private int intern(final String s) {
+			Integer id = ids.get(s);
+			if (id == null) {
+				id = strings.size();
+				ids.put(s, id);
+				strings.add(s);
+			}
+			return id;
+		}
+
+		private String[] toArray() {
+			return strings.toArray(new String[strings.size()]);
+		}
+	}
+}
@@ -0,0 +1,378 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+
+import net.imagej.ops.OpInfo;
+
+import org.scijava.command.CommandInfo;
+import org.scijava.log.LogService;
+import org.scijava.thread.ThreadService;
+
+/**
+ * Persists an {@link OpCatalog} to a compact binary snapshot on disk, so the
+ * catalog does not need to be rebuilt on every launch. Each snapshot is keyed
+ * by a fingerprint of the available {@link OpInfo}s, the jars on the class
+ * path and the default {@link Locale}; a snapshot whose fingerprint does not
+ * match the current environment is ignored and replaced.
+ * <p>
+ * Snapshots are memory-mapped when read. {@link CommandInfo}s cannot be
+ * persisted, so they are re-attached from the current {@code OpInfo}s by
+ * delegate class name.
+ * </p>
+ */
+public class OpCatalogCache {
+
+	// -- Constants --
+
+	public static final String CACHE_FILE = "op-finder.cache";
+
+	private static final int MAGIC = 0x4F504643; // "OPFC"
+	private static final int VERSION = 4;
+
+	// -- Fields --
+
+	private final File file;
+	private final LogService logService;
+
+	// -- Constructor --
+
+	/**
+	 * Create a cache backed by {@link #CACHE_FILE} in the user's ImageJ
+	 * directory.
+	 */
+	public OpCatalogCache(final LogService logService) {
+		this(new File(new File(System.getProperty("user.home"), ".imagej"), CACHE_FILE), logService);
+	}
+
+	public OpCatalogCache(final File file, final LogService logService) {
+		this.file = file;
+		this.logService = logService;
+	}
+
+	// -- OpCatalogCache methods --
+
+	/**
+	 * Read the snapshot for the given {@link OpInfo}s, if one exists.
+	 *
+	 * @return The persisted catalog, or {@code null} if there is no valid
+	 *         snapshot matching the given infos.
+	 */
+	public OpCatalog load(final Collection<OpInfo> infos) {
+		if (!file.isFile())
+			return null;
+
+		try {
+			final byte[] fingerprint = fingerprint(infos);
+
+			// Check the header before mapping, so that stale snapshots are never
+			// mapped and can always be replaced.
+			try (final DataInputStream in = new DataInputStream(
+					new BufferedInputStream(new FileInputStream(file)))) {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION)
+					return null;
+				final byte[] stored = new byte[in.readInt()];
+				in.readFully(stored);
+				if (!Arrays.equals(stored, fingerprint))
+					return null;
+			}
+
+			final Map<String, CommandInfo> cInfos = new HashMap<>();
+			for (final OpInfo info : infos)
+				cInfos.put(info.cInfo().getDelegateClassName(), info.cInfo());
+
+			try (final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+				buffer.position(12 + fingerprint.length);
+				return readCatalog(buffer, cInfos);
+			}
+		} catch (final IOException | RuntimeException exc) {
+			logService.warn("Could not read Op Finder cache: " + file, exc);
+			return null;
+		}
+	}
+
+	/**
+	 * Read the snapshot for the given {@link OpInfo}s if one exists.
+	 * Otherwise, build the catalog and save a new snapshot in the background.
+	 */
+	public OpCatalog get(final Collection<OpInfo> infos, final ThreadService threadService) {
+		final OpCatalog cached = load(infos);
+		if (cached != null)
+			return cached;
+
+		final OpCatalog built = OpCatalog.build(infos);
+		threadService.run(new Runnable() {
+
+			@Override
+			public void run() {
+				save(built, infos);
+			}
+		});
+		return built;
+	}
+
+	/**
+	 * Write a snapshot of the given catalog, keyed by the given
+	 * {@link OpInfo}s. Any previous snapshot is replaced.
+	 */
+	public void save(final OpCatalog catalog, final Collection<OpInfo> infos) {
+		File tmp = null;
+		try {
+			final byte[] fingerprint = fingerprint(infos);
+			final File dir = file.getAbsoluteFile().getParentFile();
+			if (!dir.isDirectory() && !dir.mkdirs())
+				throw new IOException("Could not create directory: " + dir);
+
+			// Write to a temporary file first, so that concurrent readers never
+			// see a partial snapshot.
+			tmp = File.createTempFile(CACHE_FILE, ".tmp", dir);
+			try (final DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(new FileOutputStream(tmp)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(VERSION);
+				out.writeInt(fingerprint.length);
+				out.write(fingerprint);
+				writeCatalog(out, catalog);
+			}
+
+			try {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+						StandardCopyOption.ATOMIC_MOVE);
+			} catch (final AtomicMoveNotSupportedException exc) {
+				Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (final IOException exc) {
+			logService.warn("Could not write Op Finder cache: " + file, exc);
+			if (tmp != null && tmp.exists() && !tmp.delete())
+				tmp.deleteOnExit();
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Compute a digest over everything a catalog is derived from: the ordered
+	 * list of ops, the jars they may be loaded from and the locale used to
+	 * build search dictionaries.
+	 */
+	private byte[] fingerprint(final Collection<OpInfo> infos) throws IOException {
+		final MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-1");
+		} catch (final NoSuchAlgorithmException exc) {
+			throw new IOException(exc);
+		}
+
+		update(digest, Integer.toString(VERSION));
+		update(digest, Locale.getDefault().toString());
+
+		for (final OpInfo info : infos)
+			update(digest, info.cInfo().getDelegateClassName());
+
+		for (final String path : classPath()) {
+			final File entry = new File(path);
+			update(digest, path);
+			update(digest, Long.toString(entry.length()));
+			update(digest, Long.toString(entry.lastModified()));
+		}
+
+		return digest.digest();
+	}
+
+	/**
+	 * @return The sorted, de-duplicated paths of all class path entries visible
+	 *         to this class and to the current thread.
+	 */
+	private static Collection<String> classPath() {
+		final Collection<String> paths = new TreeSet<>();
+
+		final String javaClassPath = System.getProperty("java.class.path");
+		if (javaClassPath != null) {
+			for (final String path : javaClassPath.split(File.pathSeparator)) {
+				if (!path.isEmpty())
+					paths.add(new File(path).getAbsolutePath());
+			}
+		}
+
+		final List<ClassLoader> loaders = new ArrayList<>();
+		loaders.add(Thread.currentThread().getContextClassLoader());
+		loaders.add(OpCatalogCache.class.getClassLoader());
+		for (ClassLoader loader : loaders) {
+			for (; loader != null; loader = loader.getParent()) {
+				if (!(loader instanceof URLClassLoader))
+					continue;
+				for (final URL url : ((URLClassLoader) loader).getURLs()) {
+					if ("file".equals(url.getProtocol()))
+						paths.add(new File(url.getPath()).getAbsolutePath());
+					else
+						paths.add(url.toString());
+				}
+			}
+		}
+
+		return paths;
+	}
+
+	private static void update(final MessageDigest digest, final String s) {
+		digest.update(s.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static void writeCatalog(final DataOutputStream out, final OpCatalog catalog) throws IOException {
+		final String[] strings = catalog.strings();
+		out.writeInt(strings.length);
+		for (final String string : strings)
+			writeString(out, string);
+
+		out.writeInt(catalog.getOpCount());
+		writeInts(out, catalog.names());
+		writeInts(out, catalog.simpleNames());
+		writeInts(out, catalog.codeCalls());
+		writeInts(out, catalog.referenceClasses());
+		writeChildren(out, catalog.children(false));
+		writeChildren(out, catalog.children(true));
+		writeIndex(out, catalog.getIndex(false));
+		writeIndex(out, catalog.getIndex(true));
+	}
+
+	private static OpCatalog readCatalog(final ByteBuffer in, final Map<String, CommandInfo> cInfos)
+			throws IOException {
+		final String[] strings = new String[in.getInt()];
+		for (int i = 0; i < strings.length; i++)
+			strings[i] = readString(in);
+
+		final CommandInfo[] infos = new CommandInfo[in.getInt()];
+		final int[] names = readInts(in);
+		final int[] simpleNames = readInts(in);
+		final int[] codeCalls = readInts(in);
+		final int[] referenceClasses = readInts(in);
+		for (int op = 0; op < infos.length; op++) {
+			final String referenceClass = strings[referenceClasses[op]];
+			infos[op] = cInfos.get(referenceClass);
+			if (infos[op] == null)
+				throw new IOException("No CommandInfo for cached op: " + referenceClass);
+		}
+
+		final OpCatalog.Children advChildren = readChildren(in);
+		final OpCatalog.Children smplChildren = readChildren(in);
+		final OpSearchIndex advIndex = readIndex(in);
+		final OpSearchIndex smplIndex = readIndex(in);
+		return new OpCatalog(strings, names, simpleNames, codeCalls, referenceClasses, infos, advChildren,
+				smplChildren, advIndex, smplIndex);
+	}
+
+	private static void writeChildren(final DataOutputStream out, final OpCatalog.Children children)
+			throws IOException {
+		writeInts(out, children.offsets());
+		writeInts(out, children.nodes());
+	}
+
+	private static OpCatalog.Children readChildren(final ByteBuffer in) {
+		final int[] offsets = readInts(in);
+		return new OpCatalog.Children(offsets, readInts(in));
+	}
+
+	private static void writeIndex(final DataOutputStream out, final OpSearchIndex index) throws IOException {
+		final SubstringDictionary dictionary = index.dictionary();
+		out.writeInt(dictionary.size());
+		writeString(out, new String(dictionary.text()));
+		writeInts(out, dictionary.starts());
+		writeInts(out, dictionary.ids());
+		writeInts(out, dictionary.suffixes());
+		final Map<String, int[]> segments = dictionary.segments();
+		out.writeInt(segments.size());
+		for (final Map.Entry<String, int[]> entry : segments.entrySet()) {
+			writeString(out, entry.getKey());
+			writeInts(out, entry.getValue());
+		}
+	}
+
+	private static OpSearchIndex readIndex(final ByteBuffer in) {
+		final int size = in.getInt();
+		final char[] text = readString(in).toCharArray();
+		final int[] starts = readInts(in);
+		final int[] ids = readInts(in);
+		final int[] suffixes = readInts(in);
+		final int count = in.getInt();
+		final Map<String, int[]> segments = new HashMap<>(count * 2);
+		for (int i = 0; i < count; i++) {
+			final String segment = readString(in);
+			segments.put(segment, readInts(in));
+		}
+		return new OpSearchIndex(new SubstringDictionary(text, starts, ids, suffixes, segments, size));
+	}
+
+	private static void writeInts(final DataOutputStream out, final int[] ints) throws IOException {
+		out.writeInt(ints.length);
+		for (final int i : ints)
+			out.writeInt(i);
+	}
+
+	private static int[] readInts(final ByteBuffer in) {
+		final int[] ints = new int[in.getInt()];
+		in.asIntBuffer().get(ints);
+		in.position(in.position() + ints.length * 4);
+		return ints;
+	}
+
+	private static void writeString(final DataOutputStream out, final String s) throws IOException {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(final ByteBuffer in) {
+		final byte[] bytes = new byte[in.getInt()];
+		in.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
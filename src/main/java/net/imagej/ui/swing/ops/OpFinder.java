@@ -33,18 +33,26 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 import javax.swing.ImageIcon;
 import javax.swing.JButton;
@@ -67,21 +75,17 @@ import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
+import javax.swing.text.html.HTMLDocument;
 import javax.swing.tree.TreePath;
 
 import net.imagej.ops.Namespace;
 import net.imagej.ops.Op;
-import net.imagej.ops.OpInfo;
 import net.imagej.ops.OpService;
 import net.imagej.ops.OpUtils;
-import net.imglib2.img.Img;
 import net.miginfocom.swing.MigLayout;
 
-import org.ahocorasick.trie.Emit;
-import org.ahocorasick.trie.Trie;
+import org.jdesktop.swingx.JXTable;
 import org.jdesktop.swingx.JXTreeTable;
-import org.jsoup.Jsoup;
-import org.jsoup.select.Elements;
 import org.scijava.Context;
 import org.scijava.command.CommandInfo;
 import org.scijava.log.LogService;
@@ -126,6 +130,7 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 
 	public static final int DETAILS_WINDOW_WIDTH = 400;
 	public static final int MAIN_WINDOW_HEIGHT = 700;
+	public static final int MAIN_WINDOW_WIDTH = 700;
 	public static final int COLUMN_MARGIN = 5;
 	public static final int HIDE_COOLDOWN = 1500;
 	public static final String WINDOW_HEIGHT = "op.viewer.height";
@@ -133,6 +138,22 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	public static final String NO_NAMESPACE = "(global)";
 	public static final String BASE_JAVADOC_URL = "http://javadoc.imagej.net/ImageJ/";
 	public static final String SIMPLE_KEY = "net.imagej.ui.swing.ops.opfinder.simple";
+	public static final String MAX_RESULTS_KEY = "net.imagej.ui.swing.ops.opfinder.maxResults";
+	public static final String MIN_SCORE_KEY = "net.imagej.ui.swing.ops.opfinder.minScorePercent";
+	public static final int DEFAULT_MAX_RESULTS = 500;
+	public static final int DEFAULT_MIN_SCORE = 100;
+	public static final int PREFETCH_NEIGHBOURS = 3;
+	public static final int PREFETCH_RESULTS = 5;
+	public static final int MAX_PREFETCHES = 2;
+	public static final String JAVADOC_PATH_KEY = "net.imagej.ui.swing.ops.opfinder.javadocPath";
+	public static final String OFFLINE_KEY = "net.imagej.ui.swing.ops.opfinder.offline";
+	public static final String QUIET_WINDOW_KEY = "net.imagej.ui.swing.ops.opfinder.quietWindow";
+	public static final int DEFAULT_QUIET_WINDOW = 150;
+	public static final String PUBLISH_INTERVAL_KEY = "net.imagej.ui.swing.ops.opfinder.publishInterval";
+	public static final int DEFAULT_PUBLISH_INTERVAL = 100;
+	public static final String CONNECT_TIMEOUT_KEY = "net.imagej.ui.swing.ops.opfinder.connectTimeout";
+	public static final String READ_TIMEOUT_KEY = "net.imagej.ui.swing.ops.opfinder.readTimeout";
+	public static final String SUMMARY_KEY_PREFIX = "summary:";
 
 	// HACK -- these patterns are used to unify image and numeric classes in Ops.
 	public static final String IMG_REGEX = "ArrayImg|PlanarImg|RandomAccessibleInterval|IterableInterval|Img|Histogram1d";
@@ -146,11 +167,15 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	private ModeButton modeButton;
 	private JLabel searchLabel;
 	private boolean autoToggle = true;
-	private Set<Class<?>> simpleFilterClasses;
 
 	// Off-EDT work
-	private FilterRunner lastFilter;
+	private FilterScheduler filterScheduler;
 	private HTMLFetcher lastHTMLReq;
+	private JavadocPrefetcher prefetcher;
+
+	// Scores filters on all cores. Workers are only started while filtering,
+	// and exit again when idle.
+	private final ForkJoinPool filterPool = OpCatalog.createPool();
 
 	// Sizing fields
 	private int[] widths;
@@ -158,6 +183,7 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	// Child elements
 	private JTextField searchField;
 	private JXTreeTable treeTable;
+	private JXTable resultTable;
 	private JLabel successLabel = null;
 	private JEditorPane textPane;
 	private JScrollPane detailsPane;
@@ -165,8 +191,11 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	private final JPanel mainPane;
 	private final JSplitPane splitPane;
 	private JProgressBar progressBar;
+	private JScrollPane treePane;
 	private OpTreeTableModel advModel;
 	private OpTreeTableModel smplModel;
+	private OpResultTableModel advResults;
+	private OpResultTableModel smplResults;
 
 	// Icons
 	private ImageIcon opFail;
@@ -181,11 +210,30 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	private Set<TreePath> smplExpandedPaths;
 
 	// Caching web elements
-	private Map<String, String> elementsMap;
+	private JavadocCache javadocCache;
+	private DetailsRenderer detailsRenderer;
+	private OpSummarizer summarizer;
+
+	// Where to read Javadoc from, in order of preference
+	private List<JavadocSource> javadocSources;
+
+	// The catalog backing the models, or null until it is available
+	private OpCatalog catalog;
+
+	// Result of the last completed filter, refined by the next one
+	private volatile OpSearchIndex.Hits lastHits;
+
+	// How many filter results to show, and how "fuzzy" they may be
+	private int maxResults;
+	private int minScorePercent;
 
-	// Cache tries for matching
-	private Map<Trie, OpTreeTableNode> advTries;
-	private Map<Trie, OpTreeTableNode> smplTries;
+	// Milliseconds between provisional results of a running filter
+	private int publishInterval;
+
+	// Generation of the latest filter started, and of the results shown.
+	// Only accessed on the EDT.
+	private int filterGeneration;
+	private int shownGeneration;
 
 	// For hiding the successLabel
 	private Timer successTimer;
@@ -211,15 +259,36 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	@Parameter
 	private ThreadService threadService;
 
-	// -- Constructor --
+	// -- Constructors --
 
+	/**
+	 * Create an {@code Op Finder}, building its {@link OpCatalog} (or reading
+	 * it from the {@link OpCatalogCache}) before returning.
+	 */
 	public OpFinder(final Context context) {
+		this(context, null);
+	}
+
+	/**
+	 * Create an {@code Op Finder} backed by an {@link OpCatalog} which may
+	 * still be under construction. If the catalog is not yet available, the
+	 * window is usable immediately and its contents are attached as soon as
+	 * the catalog is done.
+	 *
+	 * @param pendingCatalog The catalog to display, or {@code null} to build
+	 *            it now.
+	 */
+	public OpFinder(final Context context, final Future<OpCatalog> pendingCatalog) {
 		super("Op Finder");
 		context.inject(this);
 
 		initialize();
 		setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
 
+		// Populate the nodes now, unless we would have to wait for them
+		if (pendingCatalog == null || pendingCatalog.isDone())
+			createNodes(getCatalog(pendingCatalog));
+
 		// NB top panel defines column count
 		mainPane = new JPanel(new MigLayout("", "[][][][][][][grow, right]", "[grow]"));
 
@@ -244,6 +313,9 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 
 		// Restore state from preferences
 		setState(prefService.getBoolean(SIMPLE_KEY, true));
+
+		if (catalog == null)
+			waitForCatalog(pendingCatalog);
 	}
 
 	// -- OpFinder methods --
@@ -266,7 +338,7 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 			if (treeTable != null) {
 				cacheExpandedPaths(!toSimple);
 				treeTable.setTreeTableModel(toSimple ? smplModel : advModel);
-				restoreExpandedPaths(toSimple, false);
+				restoreExpandedPaths(toSimple);
 			}
 
 			// If the details pane has never been manually toggled, we want
@@ -275,11 +347,46 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 				toggleDetails();
 
 			// Simple and Advanced trees are kept separately, so we need to
-			// re-filter when changing modes.
+			// re-filter when changing modes. A filter of the previous mode is
+			// outdated.
+			filterScheduler.cancel();
 			filterOps(searchField.getDocument());
 		}
 	}
 
+	/**
+	 * Show the given {@link OpCatalog} instead of the current one, e.g. after
+	 * plugins were added or removed. Expanded namespaces stay expanded, and
+	 * the current filter is applied to the new catalog. Must be called on the
+	 * EDT.
+	 */
+	public void setCatalog(final OpCatalog opCatalog) {
+		if (catalog == null) {
+			// Still waiting for the first catalog
+			attachCatalog(opCatalog);
+			return;
+		}
+		if (opCatalog == catalog)
+			return;
+
+		// Anything computed from the old catalog is outdated
+		filterScheduler.cancel();
+		prefetcher.cancel();
+		lastHits = null;
+
+		// The nodes of the new catalog are different, so expanded paths are
+		// looked up again by name
+		if (getActiveTable() == treeTable)
+			cacheExpandedPaths(simple);
+		createNodes(opCatalog);
+		translateExpandedPaths(advExpandedPaths, advModel);
+		translateExpandedPaths(smplExpandedPaths, smplModel);
+		treeTable.setTreeTableModel(simple ? smplModel : advModel);
+		restoreExpandedPaths(simple);
+
+		filterOps(searchField.getDocument());
+	}
+
 	// -- Component methods --
 	
 	@Override
@@ -354,14 +461,27 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	private void initialize() {
 		advExpandedPaths = new HashSet<>();
 		smplExpandedPaths = new HashSet<>();
-		elementsMap = new HashMap<>();
-		advTries = new HashMap<>();
-		smplTries = new HashMap<>();
+		javadocCache = new JavadocCache(logService);
+		detailsRenderer = new DetailsRenderer();
+		summarizer = new OpSummarizer();
+		javadocSources = createJavadocSources();
+		prefetcher = new JavadocPrefetcher();
+		threadService.run(new Runnable() {
+
+			@Override
+			public void run() {
+				javadocCache.pruneExpired();
+			}
+		});
 		advModel = new OpTreeTableModel(false);
 		smplModel = new OpTreeTableModel(true);
+		advResults = new OpResultTableModel(false);
+		smplResults = new OpResultTableModel(true);
 		widths = new int[advModel.getColumnCount()];
-	
-		buildSimpleInputs();
+		maxResults = Math.max(1, prefService.getInt(MAX_RESULTS_KEY, DEFAULT_MAX_RESULTS));
+		minScorePercent = Math.max(0, Math.min(100, prefService.getInt(MIN_SCORE_KEY, DEFAULT_MIN_SCORE)));
+		publishInterval = Math.max(0, prefService.getInt(PUBLISH_INTERVAL_KEY, DEFAULT_PUBLISH_INTERVAL));
+		filterScheduler = new FilterScheduler(Math.max(0, prefService.getInt(QUIET_WINDOW_KEY, DEFAULT_QUIET_WINDOW)));
 	
 		buildTimers();
 	}
@@ -392,9 +512,6 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	 * Also build and attach the necessary structures to respond to user inputs.
 	 */
 	private void buildTreeTable() {
-		// Populate the nodes
-		createNodes();
-	
 		// Create a custom TreeTable to fill the tool-tip text appropriately
 		treeTable = new JXTreeTable(simple ? smplModel : advModel) {
 			// Adapted from:
@@ -420,8 +537,8 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 							else
 								name = n.getName();
 							if (rowIndex > 0 && n.getCodeCall().isEmpty()) {
-								final OpTreeTableNode firstChild = n.getChildren().get(0);
-								if (firstChild != null && firstChild.getChildren().isEmpty()) {
+								final OpTreeTableNode firstChild = n.getChild(0);
+								if (firstChild != null && firstChild.getChildCount() == 0) {
 									// If a child of this node is a leaf then
 									// this node
 									// is an Op node
@@ -450,17 +567,18 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	
 		// Adapted from:
 		// http://stackoverflow.com/a/25918436/1027800
-		treeTable.addMouseListener(new MouseAdapter() {
+		final MouseAdapter copyListener = new MouseAdapter() {
 			@Override
 			public void mouseClicked(final MouseEvent e) {
 				if (e.getClickCount() == 2) {
+					final JXTable table = (JXTable) e.getSource();
 					final Point p = e.getPoint();
-					final int rowIndex = treeTable.rowAtPoint(p);
-					final int colIndex = treeTable.columnAtPoint(p);
+					final int rowIndex = table.rowAtPoint(p);
+					final int colIndex = table.columnAtPoint(p);
 					final OpTreeTableNode n = getNodeAtRow(rowIndex);
 	
 					if (n != null) {
-						final String text = treeTable.getValueAt(rowIndex, colIndex).toString();
+						final String text = table.getValueAt(rowIndex, colIndex).toString();
 	
 						if (text.isEmpty()) {
 							selectFail();
@@ -473,47 +591,59 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 					}
 				}
 			}
-		});
+		};
+		treeTable.addMouseListener(copyListener);
 	
 		// Add a selection listener: if a concrete op row is selected and the
 		// details pane is visible, fetch the javadoc for that op and display it.
-		treeTable.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+		final ListSelectionListener detailsListener = new ListSelectionListener() {
 			@Override
 			public void valueChanged(final ListSelectionEvent event) {
-				final OpTreeTableNode n = getNodeAtRow(treeTable.getSelectedRow());
+				final int row = getActiveTable().getSelectedRow();
+				final OpTreeTableNode n = getNodeAtRow(row);
 				if (n != null && detailsPane.isVisible()) {
-					String newText = n.getReferenceClass();
-					if (!newText.isEmpty()) {
-						newText = newText.replaceAll("\\.", "/");
-						if (newText.contains("$")) {
-							// For nested classes, replace $ with a URL-safe '.'
-							final String suffix = newText.substring(newText.lastIndexOf("$"));
-							newText = newText.replace(suffix, "%2E" + suffix.substring(1));
-						}
-						final String requestedClass = newText;
-						final StringBuilder sb = new StringBuilder();
-						sb.append(BASE_JAVADOC_URL);
-						sb.append(newText);
-						sb.append(".html");
-						final String url = sb.toString();
-	
-						synchronized (elementsMap) {
-							if (elementsMap.containsKey(url)) {
-								textPane.setText(elementsMap.get(url));
-								scrollToTop();
-							} else {
-								if (lastHTMLReq != null && !lastHTMLReq.isDone())
-									lastHTMLReq.stop();
-	
-								lastHTMLReq = new HTMLFetcher(sb, url, requestedClass);
-								threadService.run(lastHTMLReq);
-							}
+					final String requestedClass = getJavadocPath(n.getReferenceClass());
+					if (requestedClass != null) {
+						final String url = getJavadocURL(requestedClass);
+	
+						// Only rendered documents are used on the EDT. The
+						// fetcher renders cached HTML, and checks the disk cache
+						// before going online.
+						final HTMLDocument cached = detailsRenderer.getIfPresent(url);
+						if (cached != null) {
+							if (lastHTMLReq != null && !lastHTMLReq.isDone())
+								lastHTMLReq.stop();
+							showDetails(cached, false);
+						} else {
+							if (lastHTMLReq != null && !lastHTMLReq.isDone())
+								lastHTMLReq.stop();
+
+							// Ops are summarized right away, until their
+							// Javadoc is available
+							final CommandInfo info = n.getCommandInfo();
+							if (info != null)
+								showDetails(getSummaryDocument(url, info), false);
+
+							// Claim a prefetch of this page before the
+							// prefetches are replaced below
+							lastHTMLReq = new HTMLFetcher(url, requestedClass, info, prefetcher.join(url));
+							threadService.run(lastHTMLReq);
 						}
 					}
+
+					// Warm the cache for the rows the user is likely to move
+					// to next
+					final List<OpTreeTableNode> neighbours = new ArrayList<>();
+					for (int i = 1; i <= PREFETCH_NEIGHBOURS; i++) {
+						neighbours.add(getNodeAtRow(row + i));
+						neighbours.add(getNodeAtRow(row - i));
+					}
+					prefetcher.prefetch(neighbours);
 				}
 			}
 	
-		});
+		};
+		treeTable.getSelectionModel().addListSelectionListener(detailsListener);
 	
 		// Space the columns slightly
 		treeTable.setColumnMargin(COLUMN_MARGIN);
@@ -524,12 +654,104 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 		// Default the top row to be expanded. This should show all top-level namespaces, collapsed.
 		treeTable.expandRow(0);
 	
+		// Filter results are shown in a flat table instead, which only
+		// renders the visible rows, however many ops match
+		resultTable = new JXTable(simple ? smplResults : advResults) {
+			@Override
+			public String getToolTipText(final MouseEvent e) {
+				final Point p = e.getPoint();
+				final int rowIndex = rowAtPoint(p);
+				final int colIndex = columnAtPoint(p);
+				if (rowIndex < 0 || colIndex < 0)
+					return "";
+				return getValueAt(rowIndex, colIndex).toString();
+			}
+		};
+		resultTable.addMouseListener(copyListener);
+		resultTable.getSelectionModel().addListSelectionListener(detailsListener);
+		resultTable.setColumnMargin(COLUMN_MARGIN);
+		resultTable.setRowSelectionAllowed(true);
+		// Results stay in ranked order
+		resultTable.setSortable(false);
+
 		// Add our tree-table as a scrollable window
+		treePane = new JScrollPane(treeTable, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
+				ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
+		mainPane.add(treePane, getTreePaneConstraints());
+	}
+
+	/**
+	 * @return The table currently displayed: the result table while a filter
+	 *         is applied, the tree-table otherwise.
+	 */
+	private JXTable getActiveTable() {
+		return treePane.getViewport().getView() == resultTable ? resultTable : treeTable;
+	}
+
+	/**
+	 * Display either the flat result table or the tree-table.
+	 */
+	private void showResults(final boolean show) {
+		final JXTable table = show ? resultTable : treeTable;
+		if (treePane.getViewport().getView() != table)
+			treePane.setViewportView(table);
+	}
+
+	/**
+	 * @return The layout constraints for the tree-table window, sized by the
+	 *         current contents.
+	 */
+	private String getTreePaneConstraints() {
 		final int preferredWidth = getPreferredMainWidth();
-		mainPane.add(
-				new JScrollPane(treeTable, ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED,
-						ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED),
-				"span, wrap, grow, w " + preferredWidth / 2 + ":" + preferredWidth + ", h " + MAIN_WINDOW_HEIGHT);
+		return "span, wrap, grow, w " + preferredWidth / 2 + ":" + preferredWidth + ", h " + MAIN_WINDOW_HEIGHT;
+	}
+
+	/**
+	 * Show a rendered document in the details pane. Must be called on the EDT.
+	 *
+	 * @param keepPosition Whether to keep the current scroll position, e.g.
+	 *            when replacing an op's summary by its full details.
+	 *            Otherwise the pane is scrolled to the top.
+	 */
+	private void showDetails(final HTMLDocument document, final boolean keepPosition) {
+		if (!keepPosition) {
+			if (textPane.getDocument() != document)
+				textPane.setDocument(document);
+			scrollToTop();
+			return;
+		}
+
+		final int x = detailsPane.getHorizontalScrollBar().getValue();
+		final int y = detailsPane.getVerticalScrollBar().getValue();
+		textPane.setDocument(document);
+		SwingUtilities.invokeLater(new Runnable() {
+			@Override
+			public void run() {
+				detailsPane.getHorizontalScrollBar().setValue(x);
+				detailsPane.getVerticalScrollBar().setValue(y);
+			}
+		});
+	}
+
+	/**
+	 * @return The rendered summary of an op, shown while its Javadoc is
+	 *         loaded. Summaries are small, so they are rendered on the EDT
+	 *         when needed.
+	 */
+	private HTMLDocument getSummaryDocument(final String url, final CommandInfo info) {
+		final String key = SUMMARY_KEY_PREFIX + url;
+		final HTMLDocument cached = detailsRenderer.getIfPresent(key);
+		if (cached != null)
+			return cached;
+		return detailsRenderer.render(key, summarizer.summarize(info) + "<hr><p><i>Loading Javadoc...</i></p>");
+	}
+
+	/**
+	 * @return The details HTML of a node: the summary of its op, if any,
+	 *         followed by its Javadoc.
+	 */
+	private String getDetailsHTML(final CommandInfo info, final String javadoc) {
+		return info == null ? javadoc : summarizer.summarize(info) + "<hr>" + javadoc;
 	}
 
 	/**
@@ -552,6 +774,10 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	 * window
 	 */
 	private int getPreferredMainWidth() {
+		// Nothing to measure until the catalog is available
+		if (catalog == null)
+			return MAIN_WINDOW_WIDTH;
+
 		int preferredWidth = 0;
 		for (final int i : widths)
 			preferredWidth += (i + COLUMN_MARGIN);
@@ -674,36 +900,36 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	 * bar's search string.
 	 */
 	private void filterOps(final Document doc) {
+		// The filter is applied when the catalog is attached
+		if (catalog == null)
+			return;
+
 		try {
 			final String text = doc.getText(0, doc.getLength());
 
-			// If a previous filter process is running, it is now outdated and
-			// can be stopped.
-			if (lastFilter != null) {
-				lastFilter.stop();
-			}
+			// Prefetches for the current view are outdated
+			prefetcher.cancel();
 
-			// If there is no text then we want to restore the full tree-table
-			// model, based on the current mode flag.
+			// If there is no text then we want to show the full tree-table
+			// again, which filtering leaves untouched. Any pending or running
+			// filter is now outdated and can be stopped.
 			if (text == null || text.isEmpty()) {
-				treeTable.setTreeTableModel(simple ? smplModel : advModel);
-				restoreExpandedPaths(simple, true);
+				filterScheduler.cancel();
+				// Results of any earlier filter still in flight are outdated
+				shownGeneration = ++filterGeneration;
+				showResults(false);
 			} else {
-				// Expanded "paths" (showing the nesting of Namespaces) are only
-				// visible when no filter is applied. Thus, when applying a
-				// filter, we need to cache the state of currently expanded
-				// paths. This way if the search field is cleared, we go back to
-				// the previous state of the view.
-				cacheExpandedPaths(simple);
-
-				// Start running the requested filter on a new thread. We do
-				// this because filtering is purely data structure manipulation,
-				// and can be lengthy depending on the number of Ops (especially
-				// the first time filtering is performed and tries are being
-				// built). Running off the EDT ensures we don't kill the entire
-				// app, and allows us to post progress updated.
-				lastFilter = new FilterRunner(text);
-				threadService.run(lastFilter);
+				// Remember the expanded namespaces while the results are
+				// shown, so that they are kept if the catalog changes
+				if (getActiveTable() == treeTable)
+					cacheExpandedPaths(simple);
+
+				// Run the requested filter on another thread. We do this
+				// because filtering is purely data structure manipulation, and
+				// can be lengthy depending on the number of Ops. Running off
+				// the EDT ensures we don't kill the entire app, and allows us
+				// to post progress updated.
+				filterScheduler.request(text);
 			}
 		} catch (final BadLocationException exc) {
 			logService.error(exc);
@@ -711,14 +937,13 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	}
 
 	/**
-	 * Typically used when changing views or clearing the filter results.
-	 * Restores the state of any expanded tree nodes in the main pane after
-	 * storage with {@link #cacheExpandedPaths(boolean)}.
+	 * Typically used when changing views or catalogs. Restores the state of
+	 * any expanded tree nodes in the main pane after storage with
+	 * {@link #cacheExpandedPaths(boolean)}.
 	 *
 	 * @param isSimple whether the simple or advanced cache should be restored
-	 * @param clearCache if true, the cache will be deleted after it's restored.
 	 */
-	private void restoreExpandedPaths(final boolean isSimple, final boolean clearCache) {
+	private void restoreExpandedPaths(final boolean isSimple) {
 		final Set<TreePath> paths = isSimple ? smplExpandedPaths : advExpandedPaths;
 
 		if (paths.isEmpty()) {
@@ -729,21 +954,17 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 				treeTable.expandPath(path);
 			}
 		}
-
-		if (clearCache) {
-			paths.clear();
-		}
-
 	}
 
 	/**
 	 * Look at each path check which paths are expanded and cache
-	 * them for future restoration.
+	 * them for future restoration, replacing any earlier cache.
 	 * 
 	 * @param isSimple whether the simple or advanced cache should be saved
 	 */
 	private void cacheExpandedPaths(final boolean isSimple) {
 		final Set<TreePath> paths = isSimple ? smplExpandedPaths : advExpandedPaths;
+		paths.clear();
 
 		// Find and cache the expanded paths
 		for (int i = 0; i < treeTable.getRowCount(); i++) {
@@ -782,247 +1003,113 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	}
 
 	/**
-	 * Helper method to populate the {@link Op} nodes. Ops without a valid name
-	 * will be skipped. Ops with no namespace will be put in a
-	 * {@link #NO_NAMESPACE} category.
+	 * Helper method to populate the {@link Op} nodes from the
+	 * {@link OpCatalog}. Fresh models are created for both modes; their nodes
+	 * are views of the catalog, which holds the hierarchy of each mode.
 	 */
-	private void createNodes() {
-		// We maintain separate data structures for each mode
-		final OpTreeTableNode advParent = new OpTreeTableNode("ops", "# @OpService ops", "net.imagej.ops.OpService");
-		final OpTreeTableNode smplParent = new OpTreeTableNode("ops", "# @OpService ops", "net.imagej.ops.OpService");
-		advModel.getRoot().add(advParent);
-		smplModel.getRoot().add(smplParent);
-
-		// Map namespaces and ops to their parent tree node
-		final Map<String, OpTreeTableNode> advNamespaces = new HashMap<>();
-		final Map<String, OpTreeTableNode> smplNamespaces = new HashMap<>();
-		final Set<String> smplOps = new HashSet<>();
-
-		// Iterate over all ops
-		for (final OpInfo info : opService.infos()) {
-
-			final String opName = getName(info.getSimpleName(), info.getName());
-
-			if (!opName.isEmpty()) {
-				final String namespacePath = getName(info.getNamespace(), NO_NAMESPACE);
-				final String pathToOp = namespacePath + "." + opName;
-
-				// Build the node path to this op. There is one node per
-				// namespace. Then a general Op type node, the leaves of which
-				// are the actual implementations.
-				final OpTreeTableNode advOpType = buildNamespaceHierarchy(advParent, advNamespaces, pathToOp);
-				final OpTreeTableNode smplOpType = buildNamespaceHierarchy(smplParent, smplNamespaces, pathToOp);
-
-				final String delegateClass = info.cInfo().getDelegateClassName();
-				String simpleName = OpUtils.simpleString(info.cInfo());
-				final String codeCall = OpUtils.opCall(info.cInfo());
-
-				// Create a leaf node for this particular Op's signature
-				final OpTreeTableNode opSignature = new OpTreeTableNode(simpleName, codeCall, delegateClass);
-				opSignature.setCommandInfo(info.cInfo());
-
-				// Create the dictionary which will be used for filtering
-				final Trie advTrie = buildTries(delegateClass, '.');
-				advTries.put(advTrie, opSignature);
-				advOpType.add(opSignature);
-
-				simpleName = simplifyTypes(simpleName);
-
-				// If this Op matches our criteria for inclusion in simple mode,
-				// we update the corresponding for the simple data structures.
-				if (isSimple(info.cInfo(), simpleName, smplOps)) {
-					final OpTreeTableNode simpleOp = new OpTreeTableNode(simpleName, codeCall, delegateClass);
-					simpleOp.setCommandInfo(info.cInfo());
-					final Trie smplTrie = buildTries(simpleName);
-					smplTries.put(smplTrie, simpleOp);
-					smplOpType.add(simpleOp);
-				}
+	private void createNodes(final OpCatalog opCatalog) {
+		catalog = opCatalog;
+		advModel = new OpTreeTableModel(false);
+		smplModel = new OpTreeTableModel(true);
+		advModel.getRoot().add(new OpTreeTableNode(catalog, catalog.getRoot(), false));
+		smplModel.getRoot().add(new OpTreeTableNode(catalog, catalog.getRoot(), true));
 
-				updateWidths(widths, simpleName, codeCall, delegateClass);
-			}
+		for (int op = 0; op < catalog.getOpCount(); op++) {
+			updateWidths(widths, catalog.getName(true, op), catalog.getCodeCall(op),
+					catalog.getReferenceClass(op));
 		}
-
-		pruneEmptyNodes(smplParent);
 	}
 
 	/**
-	 * HACK
-	 * Build the allowlist of classes that we will display in the simple view.
+	 * Wait for the given {@link OpCatalog} off the EDT, then attach it to the
+	 * tree-table. The progress bar stays busy in the meantime.
 	 */
-	private void buildSimpleInputs() {
-		simpleFilterClasses = new HashSet<>();
-		// Only Img and things convertible to Img will be considered
-		simpleFilterClasses.add(Img.class);
-	}
-
-	/**
-	 * HACK
-	 * Perform string replacements to simplify names of Op parameters.
-	 */
-	private String simplifyTypes(String simpleName) {
-		// The goal is to boil down all parameter to "Image" or "Number" labels for display purposes.
-		simpleName = simpleName.replaceAll(IMG_REGEX + "|" + IMGPLUS_REGEX, "Image");
-		simpleName = simpleName.replaceAll(NUMBER_REGEX, "Number");
-
-		// Remove optional parameters
-		simpleName = simpleName.replaceAll("[a-zA-Z0-9]+(\\[\\])? [a-zA-Z0-9]+\\?", "");
-
-		// Clean up variable separators from removed optional params
-		simpleName = simpleName.replaceAll(", (, )+", ", "); // multiple adjacent optional params
-		simpleName = simpleName.replaceAll("(, )+(\\))", "$2"); // last param is optional
-		simpleName = simpleName.replaceAll("(\\()(, )+", "$1"); // first param is optional
+	private void waitForCatalog(final Future<OpCatalog> pendingCatalog) {
+		progressBar.setIndeterminate(true);
+		progressBar.setVisible(true);
 
-		// Remove the return variable
-		final int splitPoint = simpleName.substring(0, simpleName.indexOf('(')).lastIndexOf(' ');
+		threadService.run(new Runnable() {
 
-		return simpleName.substring(splitPoint + 1);
-	}
+			@Override
+			public void run() {
+				final OpCatalog opCatalog = getCatalog(pendingCatalog);
+				SwingUtilities.invokeLater(new Runnable() {
 
-	/**
-	 * HACK
-	 * @return true iff the given {@link Op} meets the criteria for display in simple mode.
-	 */
-	private boolean isSimple(final CommandInfo info, final String simpleName, final Set<String> simpleOps) {
-		if (!simpleOps.contains(simpleName)) {
-			// Check that at least one of the Op's inputs is on the "simple types" white list.
-			for (final ModuleItem<?> moduleItem : info.inputs()) {
-				final Class<?> inputType = moduleItem.getType();
-				for (final Class<?> acceptedClass : simpleFilterClasses) {
-					if (acceptedClass.isAssignableFrom(inputType)) {
-						simpleOps.add(simpleName);
-						return true;
+					@Override
+					public void run() {
+						// A newer catalog may have been set in the meantime
+						if (catalog == null)
+							attachCatalog(opCatalog);
 					}
-				}
+				});
 			}
-		}
-
-		return false;
+		});
 	}
 
 	/**
-	 * Build a {@link Trie} dictionary for filter parsing, using all substrings
-	 * of the given input dictionary and delimiters.
+	 * Replace the cached expanded paths by the paths of the namespaces with
+	 * the same names in the given model, dropping those which no longer
+	 * exist.
 	 */
-	private Trie buildTries(final String rawDict, final char... delim) {
-		final Trie trie = new Trie().removeOverlaps();
-		final Set<String> substrings = getSubstringsWithDelim(rawDict.toLowerCase(Locale.getDefault()), delim);
-		for (final String substring : substrings)
-			trie.addKeyword(substring);
-		
-		return trie;
+	private void translateExpandedPaths(final Set<TreePath> paths, final OpTreeTableModel model) {
+		final List<TreePath> oldPaths = new ArrayList<>(paths);
+		paths.clear();
+		for (final TreePath path : oldPaths) {
+			OpTreeTableNode node = model.getRoot();
+			for (int i = 1; node != null && i < path.getPathCount(); i++)
+				node = getNamespace(node, ((OpTreeTableNode) path.getPathComponent(i)).getName());
+			if (node != null)
+				paths.add(model.getPathToRoot(node));
+		}
 	}
-	
+
 	/**
-	 * Recursively prune any node that signifies an "empty" namespace, that is:
-	 * 
-	 *  <ul>
-	 *  <li>has no children</li>
-	 *  <li>has no {@code ReferenceClass} field</li>
-	 *  </ul>
-	 *
-	 * @return true if this node should be removed from the child list.
+	 * @return The child namespace of the given node with the given name, or
+	 *         {@code null}.
 	 */
-	private boolean pruneEmptyNodes(final OpTreeTableNode node) {
-		// A code call indicates the node is a true Op and not a namespace.
-		boolean removeThis = node.getCodeCall().isEmpty();
-		final List<OpTreeTableNode> preservedChildren = new ArrayList<>();
-
-		// Recursive step over child nodes
-		for (final OpTreeTableNode child : node.getChildren()) {
-			if (!pruneEmptyNodes(child))
-				preservedChildren.add(child);
+	private static OpTreeTableNode getNamespace(final OpTreeTableNode parent, final String name) {
+		for (int i = 0; i < parent.getChildCount(); i++) {
+			final OpTreeTableNode child = parent.getChild(i);
+			if (child.getCommandInfo() == null && child.getName().equals(name))
+				return child;
 		}
-
-		node.getChildren().retainAll(preservedChildren);
-
-		// If all children have been eliminated, mark this node for removal
-		removeThis &= node.getChildren().isEmpty();
-
-		return removeThis;
+		return null;
 	}
 
 	/**
-	 * A provided base string is broken down into substrings as follows:
-	 * <ul>
-	 * <li>For each delimiter: {@link String#split(String)} the base string</li>
-	 * <li>For each leading substring of the split: add to final string set</li>
-	 * <li>For the last substring of the split: add all possible substrings to the final set</li>
-	 * </ul>
-	 * <p>
-	 * For example, if given the input string "org.scijava.haha" and delimiter ".", this method would return the set:
-	 * <ul>
-	 * <li>"org", "scijava", "h", "a", "ah", "aha", "hah", "haha"</li>
-	 * </ul>
-	 * </p>
+	 * Populate the models from the given {@link OpCatalog} and display them.
+	 * Must be called on the EDT.
 	 */
-	private Set<String> getSubstringsWithDelim(final String string, final char... delims) {
-		final Set<String> substringsToCheck = new HashSet<>();
-
-		String strOfInterest = string;
-
-		// For each delimiter, add all leading split strings and save the final split
-		for (final char delim : delims) {
-			int dotIndex = 0;
-			while (dotIndex >= 0) {
-				final int startIndex = dotIndex;
-				dotIndex = string.indexOf(delim, dotIndex + 1);
-
-				if (dotIndex < 0) {
-					strOfInterest = string.substring(startIndex, string.length());
-				} else {
-					substringsToCheck.add(string.substring(startIndex, dotIndex + 1));
-				}
-			}
-		}
+	private void attachCatalog(final OpCatalog opCatalog) {
+		createNodes(opCatalog);
+		treeTable.setTreeTableModel(simple ? smplModel : advModel);
+		treeTable.expandRow(0);
 
-		// find all substrings of each final split
-		for (int start = 0; start < strOfInterest.length() - 1; start++) {
-			// iterate over all substring positions
-			for (int end = start + 1; end <= strOfInterest.length(); end++) {
-				substringsToCheck.add(strOfInterest.substring(start, end));
-			}
-		}
+		// Now that the contents are known, resize the tree-table window
+		((MigLayout) mainPane.getLayout()).setComponentConstraints(treePane, getTreePaneConstraints());
+		mainPane.revalidate();
 
-		return substringsToCheck;
+		progressBar.setIndeterminate(false);
+		setProgress(100);
+
+		// Apply anything typed while waiting
+		filterOps(searchField.getDocument());
 	}
 
 	/**
-	 * Helper method to ensure all nodes for a given namespace hierarchy exist.
-	 * For example, if given an input string "math.transform.fft", nodes for
-	 * "math", "transform" and "fft" would be created. The "fft" node would be
-	 * returned.
-	 *
-	 * @param parent
-	 *            Top-level root of the resulting hierarchy
-	 * @param namespaceMap
-	 *            Map of namespace names to nodes
-	 * @param namespace
-	 *            Linear string representation of namespace hierarchy
-	 * @return The node for the final "leaf" namespace in the given hierarchy
-	 *         (e.g. the node to add any concrete Op implementations)
+	 * Get the result of the given pending {@link OpCatalog}, blocking until it
+	 * is available. If there is no pending catalog, or it failed, the catalog
+	 * is read from the {@link OpCatalogCache} or built on the calling thread.
 	 */
-	private OpTreeTableNode buildNamespaceHierarchy(final OpTreeTableNode parent,
-			final Map<String, OpTreeTableNode> namespaceMap, final String namespace) {
-
-		final StringBuilder sb = new StringBuilder();
-
-		OpTreeTableNode prevParent = parent;
-		// Iterate over all namespaces in the namespace string
-		// For each namespace, look up the corresponding node, creating it if
-		// the node does not already exist.
-		for (final String ns : namespace.split("\\.")) {
-			sb.append(ns);
-			final String key = sb.toString().toLowerCase(Locale.getDefault());
-			OpTreeTableNode nsNode = namespaceMap.get(key);
-			if (nsNode == null) {
-				nsNode = new OpTreeTableNode(ns);
-				namespaceMap.put(key, nsNode);
-				prevParent.add(nsNode);
+	private OpCatalog getCatalog(final Future<OpCatalog> pendingCatalog) {
+		if (pendingCatalog != null) {
+			try {
+				return pendingCatalog.get();
+			} catch (final InterruptedException | ExecutionException exc) {
+				logService.error(exc);
 			}
-			prevParent = nsNode;
 		}
-
-		return prevParent;
+		return new OpCatalogCache(logService).get(opService.infos(), threadService);
 	}
 
 	/**
@@ -1067,26 +1154,11 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 		successLabel.setIcon(icon);
 	}
 
-	/**
-	 * Helper method to get a properly formatted name. {@code name} is tried
-	 * first, then {@code backupName} if needed (i.e. {@code name} is
-	 * {@code null} or empty).
-	 * <p>
-	 * The resulting string is trimmed and set to lowercase.
-	 * </p>
-	 */
-	private String getName(String name, final String backupName) {
-		if (name == null || name.isEmpty())
-			name = backupName;
-
-		return name == null ? "" : name.trim();
-	}
-
 	/**
 	 * @return The node of the currently selected row of the Op tree-table.
 	 */
 	private OpTreeTableNode getSelectedNode() {
-		final int row = treeTable.getSelectedRow();
+		final int row = getActiveTable().getSelectedRow();
 		if (row < 0)
 			return null;
 
@@ -1094,13 +1166,109 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	}
 
 	/**
-	 * @return The node of the specified row of the Op tree-table.
+	 * @return The node of the specified row of the displayed table, or
+	 *         {@code null} if there is no such row.
 	 */
 	private OpTreeTableNode getNodeAtRow(final int row) {
+		if (row < 0 || row >= getActiveTable().getRowCount())
+			return null;
+		if (getActiveTable() == resultTable)
+			return ((OpResultTableModel) resultTable.getModel()).getNode(row);
 		final TreePath path = treeTable.getPathForRow(row);
 		return path == null ? null : (OpTreeTableNode) path.getPath()[path.getPathCount() - 1];
 	}
 
+	/**
+	 * @return The path of the Javadoc page of the given class, relative to
+	 *         {@link #BASE_JAVADOC_URL} and without extension; or {@code null}
+	 *         if there is no class.
+	 */
+	private static String getJavadocPath(final String referenceClass) {
+		if (referenceClass.isEmpty())
+			return null;
+
+		String path = referenceClass.replaceAll("\\.", "/");
+		if (path.contains("$")) {
+			// For nested classes, replace $ with a URL-safe '.'
+			final String suffix = path.substring(path.lastIndexOf("$"));
+			path = path.replace(suffix, "%2E" + suffix.substring(1));
+		}
+		return path;
+	}
+
+	private static String getJavadocURL(final String javadocPath) {
+		return BASE_JAVADOC_URL + javadocPath + ".html";
+	}
+
+	/**
+	 * Read the Javadoc details at the given URL from the {@link JavadocCache}
+	 * if possible, otherwise fetch and cache them. An expired cached page is
+	 * revalidated rather than fetched again. Blocks on I/O, so must not be
+	 * called on the EDT.
+	 *
+	 * @return The details HTML, a placeholder if they are not available, or
+	 *         {@code null} if the request was aborted.
+	 */
+	private String loadJavadoc(final String url, final JavadocRequest request) {
+		String html = javadocCache.get(url);
+		if (html != null)
+			return html;
+		request.setCached(javadocCache.getExpired(url));
+
+		// After reading the HTML we cache it, in memory and on disk, to avoid
+		// future remote connection requests.
+		for (final JavadocSource source : javadocSources) {
+			try {
+				html = source.getDetails(request);
+			} catch (final IOException exc) {
+				logService.debug(exc);
+			}
+			if (request.isAborted())
+				return null;
+			if (html != null) {
+				javadocCache.put(url, new JavadocCache.Page(html, request.getETag(), request.getLastModified()));
+				return html;
+			}
+		}
+
+		// An expired page is still better than nothing
+		if (request.getCached() != null) {
+			html = request.getCached().getHtml();
+			javadocCache.put(url, html, false);
+			return html;
+		}
+
+		// Failures are retried in the next session
+		html = "Javadoc not available for: " + request.getPath();
+		javadocCache.put(url, html, false);
+		return html;
+	}
+
+	/**
+	 * Local Javadoc is read from the jars and directories listed in the
+	 * {@link #JAVADOC_PATH_KEY} preference, or from {@code ~/.imagej/javadoc}
+	 * by default. Unless {@link #OFFLINE_KEY} is set, pages which are not
+	 * available locally are fetched from {@link #BASE_JAVADOC_URL}, within
+	 * the {@link #CONNECT_TIMEOUT_KEY} and {@link #READ_TIMEOUT_KEY} timeouts.
+	 */
+	private List<JavadocSource> createJavadocSources() {
+		final String defaultPath = new File(new File(System.getProperty("user.home"), ".imagej"), "javadoc").getPath();
+		final List<File> roots = new ArrayList<>();
+		for (final String path : prefService.get(JAVADOC_PATH_KEY, defaultPath).split(File.pathSeparator)) {
+			if (!path.trim().isEmpty())
+				roots.add(new File(path.trim()));
+		}
+
+		final List<JavadocSource> sources = new ArrayList<>();
+		sources.add(new LocalJavadocSource(roots, logService));
+		if (!prefService.getBoolean(OFFLINE_KEY, false)) {
+			sources.add(new RemoteJavadocSource(BASE_JAVADOC_URL, Math.max(0, prefService.getInt(CONNECT_TIMEOUT_KEY,
+					RemoteJavadocSource.DEFAULT_CONNECT_TIMEOUT)), Math.max(0, prefService.getInt(READ_TIMEOUT_KEY,
+					RemoteJavadocSource.DEFAULT_READ_TIMEOUT))));
+		}
+		return sources;
+	}
+
 	
 
 	// -- Helper classes --
@@ -1143,9 +1311,16 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	 */
 	private class FilterRunner extends InterruptableRunner {
 		private final String text;
+		private final int generation;
+		private final OpCatalog opCatalog = catalog;
 	
-		public FilterRunner(final String text) {
+		/**
+		 * @param generation Increases with each runner, so that results of a
+		 *            superseded runner never replace newer ones
+		 */
+		public FilterRunner(final String text, final int generation) {
 			this.text = text;
+			this.generation = generation;
 		}
 	
 		@Override
@@ -1156,19 +1331,28 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	
 		@Override
 		public void run() {
-			// We apply the filter on a temporary, non-visible model first. If
-			// this operation is not canceled then we can replace the displayed
-			// model with this filtered version.
-			final OpTreeTableModel tempModel = new OpTreeTableModel(simple);
-			final OpTreeTableNode filtered = applyFilter(text.toLowerCase(Locale.getDefault()),
-					simple ? smplTries : advTries);
-	
-			if (filtered == null)
-				return;
-	
-			tempModel.getRoot().add(filtered);
+			try {
+				filter();
+			} finally {
+				SwingUtilities.invokeLater(new Runnable() {
+
+					@Override
+					public void run() {
+						filterScheduler.finished(FilterRunner.this);
+					}
+				});
+			}
+		}
+
+		private void filter() {
+			// We score the filter off the EDT first. Until scoring is done,
+			// the best results found so far are shown at regular intervals.
+			// If this operation is not canceled then we display the final
+			// results.
+			final boolean isSimple = simple;
+			final int[] results = applyFilter(text.toLowerCase(Locale.getDefault()), isSimple);
 	
-			if (poll())
+			if (results == null || poll())
 				return;
 	
 			try {
@@ -1176,106 +1360,181 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	
 					@Override
 					public void run() {
-						// Don't update AWT stuff off the EDT
-						treeTable.setTreeTableModel(tempModel);
-	
-						// When filtering we ignore namespaces, so we display a
-						// more table-based view. This allows items of interest
-						// to be directly visible without intermingling cruft.
-						treeTable.expandAll();
+						if (!publish(results, isSimple))
+							return;
+
+						// The best results are the most likely to be selected
+						if (detailsPane.isVisible()) {
+							final OpResultTableModel resultModel = isSimple ? smplResults : advResults;
+							final List<OpTreeTableNode> best = new ArrayList<>();
+							for (int i = 0; i < Math.min(PREFETCH_RESULTS, results.length); i++)
+								best.add(resultModel.getNode(i));
+							prefetcher.prefetch(best);
+						}
 					}
 				});
 			} catch (InvocationTargetException | InterruptedException exc) {
 				logService.error(exc);
 			}
 		}
-	
+
 		/**
-		 * Parse the given filter with each {@link Trie}. Each parse is scored
-		 * by scoring each emitted token and summing these scores: e.g. if a
-		 * trie containing ["a", "ah", "bah"] parses the string "bahflah" it
-		 * would emit "ah" and "bah". Fragments are scored to prioritize long
-		 * matches over numerous small matches. Highest scoring tries are used
-		 * to look up their corresponding nodes, which are added in order of
-		 * descending score until a threshold of "acceptable" scores is reached.
+		 * Show the given results, unless this runner was stopped, newer
+		 * results are already shown, or the catalog or mode has changed since
+		 * they were scored. Must be called on the EDT.
+		 *
+		 * @return {@code true} if the results are shown.
 		 */
-		private OpTreeTableNode applyFilter(final String filter, final Map<Trie, OpTreeTableNode> tries) {
+		private boolean publish(final int[] results, final boolean isSimple) {
+			if (poll() || generation < shownGeneration || opCatalog != catalog ||
+				isSimple != simple)
+				return false;
+			shownGeneration = generation;
+
+			// Don't update AWT stuff off the EDT
+			// When filtering we ignore namespaces, so we display a
+			// flat table. This allows items of interest to be
+			// directly visible without intermingling cruft.
+			final OpResultTableModel resultModel = isSimple ? smplResults : advResults;
+			resultModel.setResults(opCatalog, results);
+			if (resultTable.getModel() != resultModel)
+				resultTable.setModel(resultModel);
+			showResults(true);
+			return true;
+		}
 	
-			// this will be the root of the filtered tree
-			final OpTreeTableNode parent = new OpTreeTableNode("ops", "# @OpService ops", "net.imagej.ops.OpService");
+		/**
+		 * Score the given filter against the {@link OpSearchIndex}. Each
+		 * entry's score is the sum of the scores of the fragments of the filter
+		 * found in that entry's dictionary: e.g. if a dictionary containing
+		 * ["a", "ah", "bah"] is matched against "bahflah", "bah" and "ah" would
+		 * be claimed. Fragments are scored to prioritize long matches over
+		 * numerous small matches. The best entries are kept, up to
+		 * {@link #MAX_RESULTS_KEY} entries scoring at least
+		 * {@link #MIN_SCORE_KEY} percent of the top score.
+		 *
+		 * @return Index ids of the best entries, best first, or {@code null}
+		 *         if this filter was superseded.
+		 */
+		private int[] applyFilter(final String filter, final boolean isSimple) {
+			final OpSearchIndex index = opCatalog.getIndex(isSimple);
 	
-			// Intermediate data structure for mapping parse scores to the
-			// node(s) with those scores.
-			final Map<Integer, List<OpTreeTableNode>> scoredOps = new HashMap<>();
+			setProgress(0);
 
-			// Each key is a score. This list contains all "kept" scores that
-			// will be displayed in our filter results.
-			final List<Integer> keys = new ArrayList<>();
-	
-			// How many top scores to keep
-			// A higher threshold allows more "fuzziness"
-			final int keep = 1;
-			int count = 0;
-
-			// Progress updates are emitted in intervals of this value
-			// i.e. every 5%
-			double nextProgress = 0.05;
-	
-			// For each Op, parse the filter text
-			// Each fragment scores ((2 * length) - 1)
-			for (final Trie trie : tries.keySet()) {
-				count++;
-				// If we've crossed a progress threshold, we update the status
-				// bar. Also poll here to see if this run has been canceled.
-				if (((double) count / tries.keySet().size()) >= nextProgress) {
-					if (poll())
-						return null;
-					setProgress((int) (nextProgress * 100));
-					nextProgress += 0.05;
-				}
-	
-				final Collection<Emit> parse = trie.parseText(filter);
-				int score = 0;
-				for (final Emit e : parse)
-					score += ((2 * e.getKeyword().length()) - 1);
-	
-				// get the positional index of this key
-				final int pos = -(Collections.binarySearch(keys, score) + 1);
-	
-				// Same value as another score - add to existing list and record the score
-				if (scoredOps.containsKey(score)) {
-					scoredOps.get(score).add(tries.get(trie));
-					if (!keys.contains(score))
-						keys.add(score, pos);
-				} else {
-					// If we haven't filled our score quota yet
-					// we can freely add this score.
-					if (keys.size() < keep || pos > 0) {
-						final List<OpTreeTableNode> ops = new ArrayList<>();
-						ops.add(tries.get(trie));
-						scoredOps.put(score, ops);
-						keys.add(pos, score);
-						// If we are bumping a score, remove the lowest
-						// key
-						if (keys.size() > keep) {
-							scoredOps.remove(keys.remove(0));
+			// Each fragment scores ((2 * length) - 1). If the user extended the
+			// last filter, only Ops affected by the new characters are rescored.
+			// Scoring is split across all cores, and abandoned as soon as this
+			// filter is superseded. Provisional rankings are computed here,
+			// off the EDT, so that showing them is only a model update.
+			final OpSearchIndex.Hits hits = index.refine(lastHits, filter, maxResults, filterPool,
+					new BooleanSupplier() {
+
+						@Override
+						public boolean getAsBoolean() {
+							return poll();
 						}
-					}
-				}
-			}
-	
-			final List<OpTreeTableNode> children = parent.getChildren();
-	
-			// Add the Ops to our root node in descending score order
-			for (int i = keys.size() - 1; i >= 0; i--) {
-				final Integer key = keys.get(i);
-				for (final OpTreeTableNode node : scoredOps.get(key))
-					children.add(node);
-			}
+					}, publishInterval, new Consumer<OpSearchIndex.Hits>() {
+
+						@Override
+						public void accept(final OpSearchIndex.Hits partial) {
+							final int[] provisional = partial.rank(maxResults, minScorePercent);
+							SwingUtilities.invokeLater(new Runnable() {
+
+								@Override
+								public void run() {
+									publish(provisional, isSimple);
+								}
+							});
+						}
+					});
+
+			if (hits == null || poll())
+				return null;
+
+			lastHits = hits;
+
+			setProgress(50);
+
+			// Rank the best Ops in descending score order
+			final int[] results = hits.rank(maxResults, minScorePercent);
 	
 			setProgress(100);
 	
-			return parent;
+			return results;
+		}
+	}
+
+	/**
+	 * Coalesces filter requests from the search field. The first request after
+	 * a pause is started right away; any further requests arriving within the
+	 * quiet window replace each other, and only the latest is started once the
+	 * field has been quiet for that long. At most one {@link FilterRunner} is
+	 * running and one query is pending at any time: a query which becomes due
+	 * while a filter is still running waits for that filter to finish, so its
+	 * results can be refined instead of being thrown away.
+	 * <p>
+	 * All methods must be called on the EDT.
+	 * </p>
+	 */
+	private class FilterScheduler implements ActionListener {
+		private final Timer quietTimer;
+		private FilterRunner running;
+		private String pending;
+
+		public FilterScheduler(final int quietWindow) {
+			quietTimer = new Timer(quietWindow, this);
+			quietTimer.setRepeats(false);
+		}
+
+		/**
+		 * Request filtering by the given text, replacing any pending request.
+		 */
+		public void request(final String text) {
+			pending = text;
+			if (quietTimer.isRunning()) {
+				quietTimer.restart();
+			} else {
+				quietTimer.start();
+				submit();
+			}
+		}
+
+		/**
+		 * Drop the pending request and stop the running filter, if any.
+		 */
+		public void cancel() {
+			pending = null;
+			quietTimer.stop();
+			if (running != null) {
+				running.stop();
+				running = null;
+			}
+		}
+
+		/**
+		 * Notify this scheduler that the given runner has finished, so the
+		 * pending request can be started.
+		 */
+		public void finished(final FilterRunner runner) {
+			if (runner != running)
+				return;
+			running = null;
+			if (!quietTimer.isRunning())
+				submit();
+		}
+
+		@Override
+		public void actionPerformed(final ActionEvent evt) {
+			// The search field has been quiet for long enough
+			submit();
+		}
+
+		private void submit() {
+			if (pending == null || running != null)
+				return;
+			running = new FilterRunner(pending, ++filterGeneration);
+			pending = null;
+			threadService.run(running);
 		}
 	}
 
@@ -1283,52 +1542,199 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 	 * {@link InterruptableRunner} for reading HTML from a remote resource to
 	 * populate the details pane. As the details pane only contains the contents
 	 * of a single row, if a new request comes in, we can discard any previous
-	 * request(s).
+	 * request(s). Stopping a fetcher aborts its connection, if any. A page
+	 * which is already being prefetched is not fetched again; the fetcher
+	 * waits for the prefetch instead, and stopping it aborts the prefetch.
 	 */
 	private class HTMLFetcher extends InterruptableRunner {
 	
 		private final String url;
-		private final String requestedClass;
-		private final StringBuilder sb;
+		private final CommandInfo info;
+		private final JavadocRequest request;
+		private final Prefetch prefetch;
 	
-		public HTMLFetcher(final StringBuilder sb, final String url, final String requestedClass) {
+		/**
+		 * @param info The op to summarize above its Javadoc, or {@code null}
+		 * @param prefetch The {@link JavadocPrefetcher#join claimed} prefetch of
+		 *            the page, or {@code null}
+		 */
+		public HTMLFetcher(final String url, final String requestedClass, final CommandInfo info,
+			final Prefetch prefetch)
+		{
 			this.url = url;
-			this.requestedClass = requestedClass;
-			this.sb = sb;
+			this.info = info;
+			this.prefetch = prefetch;
+			request = prefetch == null ? new JavadocRequest(requestedClass) : prefetch.request;
+		}
+
+		@Override
+		public void stop() {
+			super.stop();
+			request.abort();
 		}
 	
 		@Override
 		public void run() {
-			// The full HTML for these Javadoc pages contains unnecessary
-			// elements, like menus and headers, that pollute the HTML display.
-			// The "div.contentContainer" has the meat of the Javadoc that we're
-			// interested in. After reading the HTML we cache it to avoid future
-			// remote connection requests.
-			try {
-				final org.jsoup.nodes.Document doc = Jsoup.connect(sb.toString()).get();
-				final Elements elements = doc.select("div.header");
-				elements.addAll(doc.select("div.contentContainer"));
-				synchronized (elementsMap) {
-					elementsMap.put(url, elements.html());
-				}
-			} catch (final IOException exc) {
-				synchronized (elementsMap) {
-					elementsMap.put(url, "Javadoc not available for: " + requestedClass);
-				}
-			}
+			final String html = prefetch == null ? loadJavadoc(url, request) : prefetch.html.join();
+			if (poll() || html == null)
+				return;
+			// A prefetch renders the same details
+			final HTMLDocument prefetched = prefetch == null ? null : detailsRenderer.getIfPresent(url);
+			final HTMLDocument document = prefetched != null ? prefetched : detailsRenderer.render(url,
+				getDetailsHTML(info, html));
 			if (poll())
 				return;
 
-			// If this request was still desired, update the text pane contents
-			// and scroll to the top position
-			textPane.setText(elementsMap.get(url));
-			scrollToTop();
-	
-			stop();
+			// If this request was still desired, swap in the new document. If
+			// the op's summary is showing, the user may already have scrolled
+			// it, so the position is kept.
+			SwingUtilities.invokeLater(new Runnable() {
+
+				@Override
+				public void run() {
+					if (!poll()) {
+						final boolean summaryShown = info != null &&
+							textPane.getDocument() == detailsRenderer.getIfPresent(SUMMARY_KEY_PREFIX + url);
+						showDetails(document, summaryShown);
+					}
+					stop();
+				}
+			});
 		}
 	
 	}
 
+	/**
+	 * Warms the {@link JavadocCache} and {@link DetailsRenderer} in the
+	 * background for rows the user is likely to select next. At most
+	 * {@link #MAX_PREFETCHES} pages are fetched at once. Each call to
+	 * {@link #prefetch(List)} replaces all requests that have not started yet,
+	 * and aborts fetches of pages no longer wanted, so prefetching follows the
+	 * current view.
+	 */
+	private class JavadocPrefetcher {
+		// Pending requests, mapping URLs to nodes
+		private final LinkedHashMap<String, OpTreeTableNode> queue = new LinkedHashMap<>();
+		private final Map<String, Prefetch> inFlight = new HashMap<>();
+		private int workers;
+
+		/**
+		 * Replace all pending requests with the details of the given nodes,
+		 * in order, and abort unclaimed fetches of other pages. {@code null}
+		 * nodes, namespaces and pages which are already rendered are skipped.
+		 */
+		public synchronized void prefetch(final List<OpTreeTableNode> nodes) {
+			queue.clear();
+			final Set<String> wanted = new HashSet<>();
+			for (final OpTreeTableNode node : nodes) {
+				if (node == null)
+					continue;
+				final String requestedClass = getJavadocPath(node.getReferenceClass());
+				if (requestedClass == null)
+					continue;
+				final String url = getJavadocURL(requestedClass);
+				wanted.add(url);
+				// A page aborted earlier is fetched again
+				final Prefetch fetching = inFlight.get(url);
+				if ((fetching == null || fetching.request.isAborted()) && detailsRenderer.getIfPresent(url) == null)
+					queue.put(url, node);
+			}
+			abortUnwanted(wanted);
+
+			for (; workers < MAX_PREFETCHES && workers < queue.size(); workers++) {
+				threadService.run(new Runnable() {
+
+					@Override
+					public void run() {
+						work();
+					}
+				});
+			}
+		}
+
+		/**
+		 * Drop all pending requests, and abort all unclaimed fetches in
+		 * progress.
+		 */
+		public synchronized void cancel() {
+			queue.clear();
+			abortUnwanted(Collections.<String> emptySet());
+		}
+
+		/**
+		 * Claim the fetch in progress of the given page, e.g. for the details
+		 * pane, so that it is no longer aborted by this prefetcher.
+		 *
+		 * @return The claimed fetch, or {@code null} if the page is not being
+		 *         fetched.
+		 */
+		public synchronized Prefetch join(final String url) {
+			final Prefetch prefetch = inFlight.get(url);
+			if (prefetch == null || prefetch.request.isAborted())
+				return null;
+			prefetch.claimed = true;
+			return prefetch;
+		}
+
+		private void abortUnwanted(final Set<String> wanted) {
+			for (final Map.Entry<String, Prefetch> entry : inFlight.entrySet()) {
+				if (!entry.getValue().claimed && !wanted.contains(entry.getKey()))
+					entry.getValue().request.abort();
+			}
+		}
+
+		private void work() {
+			while (true) {
+				final String url;
+				final OpTreeTableNode node;
+				final Prefetch prefetch;
+				synchronized (this) {
+					final Iterator<Map.Entry<String, OpTreeTableNode>> next = queue.entrySet().iterator();
+					if (!next.hasNext()) {
+						workers--;
+						return;
+					}
+					final Map.Entry<String, OpTreeTableNode> request = next.next();
+					next.remove();
+					url = request.getKey();
+					node = request.getValue();
+					prefetch = new Prefetch(getJavadocPath(node.getReferenceClass()));
+					inFlight.put(url, prefetch);
+				}
+
+				String html = null;
+				try {
+					html = loadJavadoc(url, prefetch.request);
+					if (html != null)
+						detailsRenderer.render(url, getDetailsHTML(node.getCommandInfo(), html));
+				} finally {
+					synchronized (this) {
+						inFlight.remove(url, prefetch);
+					}
+					prefetch.html.complete(html);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A fetch of a {@link JavadocPrefetcher}, which the details pane can
+	 * claim instead of fetching the same page again.
+	 */
+	private static class Prefetch {
+		private final JavadocRequest request;
+
+		// Completed with the page, or null if aborted, once it is rendered
+		private final CompletableFuture<String> html = new CompletableFuture<>();
+
+		// Guarded by the prefetcher
+		private boolean claimed;
+
+		public Prefetch(final String requestedClass) {
+			request = new JavadocRequest(requestedClass);
+		}
+	}
+
 	/**
 	 * Button for switching between user and developer views.
 	 */
@@ -1492,8 +1898,9 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 		@Override
 		public void actionPerformed(final ActionEvent e) {
 
-			final int rowIndex = treeTable.getSelectedRow();
-			final int colIndex = treeTable.getSelectedColumn();
+			final JXTable table = getActiveTable();
+			final int rowIndex = table.getSelectedRow();
+			final int colIndex = table.getSelectedColumn();
 
 			String toCopy;
 
@@ -1504,7 +1911,7 @@ public class OpFinder extends JFrame implements DocumentListener, ActionListener
 			else if (colIndex < 0)
 				toCopy = getSelectedNode().getCodeCall();
 			else
-				toCopy = treeTable.getValueAt(rowIndex, colIndex).toString();
+				toCopy = table.getValueAt(rowIndex, colIndex).toString();
 
 			if (toCopy.isEmpty()) {
 				selectFail();
@@ -22,6 +22,8 @@
  */
 package net.imagej.ui.swing.ops;
 
+import java.util.List;
+
 import net.imagej.ImageJService;
 
 import org.scijava.Context;
@@ -38,4 +40,29 @@ import org.scijava.service.Service;
 public interface OpFinderService extends ImageJService {
 
 	void showOpFinder();
+
+	/**
+	 * Search the ops by the same scoring as the {@code Op Finder}'s filter,
+	 * without any UI. This works in headless environments, and may be called
+	 * from any number of threads concurrently. The first call waits for the
+	 * op catalog to be available.
+	 *
+	 * @param query Filter text; case is ignored
+	 * @param simple Whether to search the simplified signatures of the ops
+	 *            shown in simple mode, rather than the full class names of
+	 *            all ops
+	 * @param limit Maximum number of results
+	 * @return The ops matching the query, best first.
+	 */
+	List<OpSearchResult> search(String query, boolean simple, int limit);
+
+	/**
+	 * Run many searches at once, e.g. to check a list of op names against the
+	 * catalog. The results are the same as calling
+	 * {@link #search(String, boolean, int)} for each query, but the queries
+	 * are scored on all cores and share the work they have in common.
+	 *
+	 * @return The results of each query, in the order of {@code queries}.
+	 */
+	List<List<OpSearchResult>> searchAll(List<String> queries, boolean simple, int limit);
 }
@@ -0,0 +1,110 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * Flat {@link javax.swing.table.TableModel} of ranked filter results. The
+ * results are only an array of search index ids; the displayed strings are
+ * read from the {@link OpCatalog} for the rows a table actually renders, so
+ * the cost of showing results does not depend on how many there are. The
+ * columns are those of an {@link OpTreeTableModel} in the same mode.
+ */
+public class OpResultTableModel extends AbstractTableModel {
+
+	// -- Fields --
+
+	private final boolean simple;
+	private OpCatalog catalog;
+	private int[] ids = new int[0];
+
+	// -- Constructor --
+
+	/**
+	 * @param simple Whether to show the columns and names of simple mode
+	 */
+	public OpResultTableModel(final boolean simple) {
+		this.simple = simple;
+	}
+
+	// -- OpResultTableModel methods --
+
+	/**
+	 * Replace the displayed results. Must be called on the EDT.
+	 *
+	 * @param ids Ids of the {@link OpCatalog#getIndex(boolean) search index}
+	 *            of this model's mode, best first
+	 */
+	public void setResults(final OpCatalog catalog, final int[] ids) {
+		this.catalog = catalog;
+		this.ids = ids;
+		fireTableDataChanged();
+	}
+
+	/**
+	 * @return The catalog node of the op in the given row.
+	 */
+	public int getOp(final int row) {
+		return catalog.getOp(simple, ids[row]);
+	}
+
+	/**
+	 * @return A view of the op in the given row.
+	 */
+	public OpTreeTableNode getNode(final int row) {
+		return new OpTreeTableNode(catalog, getOp(row), simple);
+	}
+
+	// -- TableModel methods --
+
+	@Override
+	public int getRowCount() {
+		return ids.length;
+	}
+
+	@Override
+	public int getColumnCount() {
+		return OpTreeTableModel.getColumnCount(simple);
+	}
+
+	@Override
+	public String getColumnName(final int column) {
+		return OpTreeTableModel.getColumnName(simple, column);
+	}
+
+	@Override
+	public Object getValueAt(final int row, final int column) {
+		final int op = getOp(row);
+		switch (column) {
+		case 0:
+			return catalog.getName(simple, op);
+		case 1:
+			return catalog.getCodeCall(op);
+		case 2:
+			return catalog.getReferenceClass(op);
+		default:
+			return "Unknown";
+		}
+	}
+}
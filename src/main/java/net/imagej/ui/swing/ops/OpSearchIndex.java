@@ -0,0 +1,824 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import net.imagej.ops.Op;
+
+/**
+ * Index used to filter {@link Op}s by a query string. Each entry is
+ * identified by a compact integer id and described by a dictionary of
+ * keywords: the substrings of its text. The keywords are never materialized;
+ * instead a {@link SubstringDictionary} finds the sorted list of ids
+ * containing each fragment of the query, so scoring a query only touches the
+ * entries matching the query's own fragments.
+ * <p>
+ * Scores are identical to parsing the query with a non-overlapping
+ * Aho-Corasick trie per entry: matching fragments are claimed greedily,
+ * longest first and then left-most first, and each claimed fragment scores
+ * {@code (2 * length) - 1}.
+ * </p>
+ */
+public class OpSearchIndex {
+
+	// -- Constants --
+
+	// Smallest number of ids scored by a single partition of a parallel query
+	private static final int MIN_PARTITION_SIZE = 256;
+
+	// Marks fragments found in no entry in a shared lookup cache
+	private static final int[] NO_IDS = new int[0];
+
+	// -- Fields --
+
+	private final SubstringDictionary dictionary;
+	private final int size;
+	private final int maxKeywordLength;
+
+	// -- Constructor --
+
+	/**
+	 * @param dictionary Keywords of all entries
+	 */
+	OpSearchIndex(final SubstringDictionary dictionary) {
+		this.dictionary = dictionary;
+		size = dictionary.size();
+		maxKeywordLength = dictionary.maxLength();
+	}
+
+	// -- OpSearchIndex methods --
+
+	/**
+	 * @return The number of entries in this index. Valid ids are
+	 *         {@code 0 ... size() - 1}.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Score every entry against the given query. Entries that share no
+	 * fragment with the query are not visited and are absent from the result.
+	 *
+	 * @param query Lowercase query text
+	 * @return The ids and scores of all entries matching at least one fragment
+	 *         of the query.
+	 */
+	public Hits score(final String query) {
+		return refine(null, query);
+	}
+
+	/**
+	 * Score every entry against the given query, reusing the results of a
+	 * previous query where possible. If {@code query} extends the previous
+	 * query, only the entries matching a fragment which includes one of the
+	 * appended characters are rescored: the fragments of all other entries,
+	 * and thus their scores, are unchanged. Otherwise, this is equivalent to
+	 * {@link #score(String)}.
+	 *
+	 * @param previous The result of a previous query against this index, or
+	 *            {@code null}
+	 * @param query Lowercase query text
+	 * @return The same result as {@link #score(String)}, although not
+	 *         necessarily in the same order.
+	 */
+	public Hits refine(final Hits previous, final String query) {
+		if (previous != null && previous.index == this && previous.query.equals(query))
+			return previous;
+
+		final Hits hits = start(previous, query, null);
+		score(hits, hits.affected, 0, size, null);
+		return hits;
+	}
+
+	/**
+	 * Score many queries in one batch, on all threads of the given pool. The
+	 * work common to the queries is shared: each distinct query is scored
+	 * once, each distinct fragment's posting list is looked up once, and a
+	 * query extending another query of the batch is
+	 * {@link #refine(Hits, String) refined} from it rather than scored from
+	 * scratch.
+	 *
+	 * @param queries Lowercase query texts
+	 * @param pool Pool to score the queries on
+	 * @return The same results as {@link #score(String)} for each query, in
+	 *         the order of {@code queries}.
+	 */
+	public Hits[] scoreAll(final String[] queries, final ForkJoinPool pool) {
+		// Once sorted, the queries of the batch which are prefixes of a query
+		// all come before it
+		final String[] distinct = new TreeSet<>(Arrays.asList(queries)).toArray(new String[0]);
+		final Hits[] distinctHits = new Hits[distinct.length];
+		final Map<String, int[]> lookups = new ConcurrentHashMap<>();
+
+		final int batches = Math.max(1, Math.min(distinct.length, 4 * pool.getParallelism()));
+		final BatchTask[] tasks = new BatchTask[batches];
+		for (int i = 0; i < batches; i++) {
+			tasks[i] = new BatchTask(distinct, distinctHits, (int) ((long) distinct.length * i / batches),
+				(int) ((long) distinct.length * (i + 1) / batches), lookups);
+		}
+		for (final BatchTask task : tasks)
+			pool.execute(task);
+		for (final BatchTask task : tasks)
+			task.join();
+
+		final Hits[] hits = new Hits[queries.length];
+		for (int i = 0; i < queries.length; i++)
+			hits[i] = distinctHits[Arrays.binarySearch(distinct, queries[i])];
+		return hits;
+	}
+
+	/**
+	 * Parallel version of {@link #refine(Hits, String)}. The ids of this index
+	 * are split into partitions which are scored independently on the given
+	 * pool. Each partition also selects its own best {@code limit} entries,
+	 * and these selections are merged into the result's ranking.
+	 * <p>
+	 * Cancellation is checked before each partition is scored, and between
+	 * fragment lengths within a partition, so that a superseded query stops
+	 * using the pool almost immediately.
+	 * </p>
+	 *
+	 * @param previous The result of a previous query against this index, or
+	 *            {@code null}
+	 * @param query Lowercase query text
+	 * @param limit Number of best entries to select, as in
+	 *            {@link Hits#rank(int, int)}
+	 * @param pool Pool to score the partitions on
+	 * @param canceled Polled to check whether scoring should be abandoned
+	 * @return The same result as {@link #refine(Hits, String)}, or
+	 *         {@code null} if scoring was canceled.
+	 */
+	public Hits refine(final Hits previous, final String query, final int limit,
+		final ForkJoinPool pool, final BooleanSupplier canceled)
+	{
+		return refine(previous, query, limit, pool, canceled, 0, null);
+	}
+
+	/**
+	 * Parallel version of {@link #refine(Hits, String)} which also reports
+	 * provisional results while scoring. Every {@code interval} milliseconds
+	 * until scoring is done, the entries scored so far are merged and passed
+	 * to {@code progress}, on the calling thread. Provisional hits can be
+	 * {@link Hits#rank ranked} like final ones, but must not be refined.
+	 *
+	 * @param interval Milliseconds between provisional results; 0 for none
+	 * @param progress Receives the provisional results, or {@code null}
+	 * @see #refine(Hits, String, int, ForkJoinPool, BooleanSupplier)
+	 */
+	public Hits refine(final Hits previous, final String query, final int limit,
+		final ForkJoinPool pool, final BooleanSupplier canceled, final long interval,
+		final Consumer<Hits> progress)
+	{
+		if (previous != null && previous.index == this && previous.query.equals(query))
+			return previous;
+
+		final Hits hits = start(previous, query, null);
+
+		final int partitions = Math.max(1, Math.min(size / MIN_PARTITION_SIZE, 4 * pool.getParallelism()));
+		final PartitionTask[] tasks = new PartitionTask[partitions];
+		for (int i = 0; i < partitions; i++) {
+			tasks[i] = new PartitionTask(hits, (int) ((long) size * i / partitions),
+				(int) ((long) size * (i + 1) / partitions), limit, canceled);
+		}
+		for (final PartitionTask task : tasks)
+			pool.execute(task);
+
+		if (progress != null && interval > 0) {
+			final long nanos = TimeUnit.MILLISECONDS.toNanos(interval);
+			long deadline = System.nanoTime() + nanos;
+			for (final PartitionTask task : tasks) {
+				while (!await(task, deadline - System.nanoTime())) {
+					if (canceled.getAsBoolean())
+						break;
+					final Hits partial = new Hits(this, query, hits.fragments);
+					merge(partial, hits, tasks, limit);
+					progress.accept(partial);
+					deadline = System.nanoTime() + nanos;
+				}
+			}
+		}
+		for (final PartitionTask task : tasks)
+			task.join();
+
+		if (canceled.getAsBoolean())
+			return null;
+
+		merge(hits, hits, tasks, limit);
+		return hits;
+	}
+
+	/**
+	 * Derive an index with some entries removed or renumbered, and the
+	 * entries of the given builder added. The work done for the retained
+	 * entries is linear: their keywords are not sorted again.
+	 *
+	 * @param idMap New id of each id of this index, or -1 to remove its entry.
+	 *            Retained ids must keep their order.
+	 * @param added Entries to add, using new ids which are not retained from
+	 *            this index
+	 * @param newSize Number of entries of the result
+	 */
+	OpSearchIndex update(final int[] idMap, final Builder added, final int newSize) {
+		return new OpSearchIndex(dictionary.update(idMap, added.build().dictionary, newSize));
+	}
+
+	/**
+	 * @return The keywords of this index. Used for persisting the index.
+	 */
+	SubstringDictionary dictionary() {
+		return dictionary;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Merge the carried over hits and the partitions scored so far into the
+	 * given hits, in id order, and select their best entries.
+	 */
+	private static void merge(final Hits into, final Hits carried,
+		final PartitionTask[] tasks, final int limit)
+	{
+		final TopK top = new TopK(limit);
+		for (int i = 0; i < carried.size(); i++)
+			top.offer(carried.id(i), carried.score(i));
+		if (into != carried)
+			into.addAll(carried);
+		for (final PartitionTask task : tasks) {
+			if (!task.isDone())
+				continue;
+			into.addAll(task.hits);
+			top.offerAll(task.top);
+		}
+		into.top = top;
+	}
+
+	/**
+	 * Wait up to the given time for a partition to be scored.
+	 *
+	 * @return {@code true} if the partition is done.
+	 */
+	private static boolean await(final PartitionTask task, final long nanos) {
+		if (task.isDone() || nanos <= 0)
+			return task.isDone();
+		try {
+			task.get(nanos, TimeUnit.NANOSECONDS);
+		} catch (final TimeoutException exc) {
+			return false;
+		} catch (final InterruptedException exc) {
+			// Finish scoring uninterruptibly, as before
+			Thread.currentThread().interrupt();
+		} catch (final ExecutionException exc) {
+			// Rethrown when the partition is joined
+		}
+		return true;
+	}
+
+	/**
+	 * Prepare the hits for a query, carrying over the scores of a previous
+	 * query where possible.
+	 *
+	 * @param lookups Posting lists shared by a batch of queries, or
+	 *            {@code null}
+	 * @return Hits holding the lookups of {@code query}. If {@code query}
+	 *         extends {@code previous}, they also hold the scores of all
+	 *         entries unaffected by the extension, and the affected entries
+	 *         still need to be scored. Otherwise they are empty and all entries
+	 *         need to be scored.
+	 */
+	private Hits start(Hits previous, final String query, final Map<String, int[]> lookups) {
+		if (previous != null && (previous.index != this || !query.startsWith(previous.query)))
+			previous = null;
+
+		final Hits hits = new Hits(this, query, lookup(query, previous, lookups));
+		if (previous == null)
+			return hits;
+
+		// Only fragments that were not part of the previous query can change
+		// an entry's score
+		final int prefix = previous.query.length();
+		final int[][][] fragments = hits.fragments;
+		final boolean[] affected = new boolean[size];
+		for (int start = 0; start < fragments.length; start++) {
+			for (int l = Math.max(1, prefix - start + 1); l <= fragments[start].length; l++) {
+				final int[] ids = fragments[start][l - 1];
+				if (ids == null) continue;
+				for (final int id : ids)
+					affected[id] = true;
+			}
+		}
+
+		for (int i = 0; i < previous.size(); i++) {
+			if (!affected[previous.id(i)])
+				hits.add(previous.id(i), previous.score(i));
+		}
+		hits.affected = affected;
+		return hits;
+	}
+
+	/**
+	 * Look up the posting list of every fragment of the given query.
+	 *
+	 * @param previous Result of a query that {@code query} extends, whose
+	 *            lookups are reused; or {@code null}
+	 * @param lookups Posting lists shared by a batch of queries, or
+	 *            {@code null}
+	 * @return Posting lists indexed by fragment start and length minus one,
+	 *         {@code null} where a fragment is in no dictionary.
+	 */
+	private int[][][] lookup(final String query, final Hits previous, final Map<String, int[]> lookups) {
+		final int length = query.length();
+		final int[][][] fragments = new int[length][][];
+		for (int start = 0; start < length; start++) {
+			fragments[start] = new int[Math.min(length - start, maxKeywordLength)][];
+			int l = 1;
+			if (previous != null && start < previous.fragments.length) {
+				final int[][] known = previous.fragments[start];
+				System.arraycopy(known, 0, fragments[start], 0, known.length);
+				l = known.length + 1;
+			}
+			for (; l <= fragments[start].length; l++)
+				fragments[start][l - 1] = lookup(query.substring(start, start + l), lookups);
+		}
+		return fragments;
+	}
+
+	/**
+	 * @return The posting list of the given fragment, or {@code null} if it is
+	 *         in no dictionary.
+	 */
+	private int[] lookup(final String fragment, final Map<String, int[]> lookups) {
+		if (lookups == null)
+			return dictionary.lookup(fragment);
+
+		int[] ids = lookups.get(fragment);
+		if (ids == null) {
+			ids = dictionary.lookup(fragment);
+			if (ids == null)
+				ids = NO_IDS;
+			lookups.put(fragment, ids);
+		}
+		return ids == NO_IDS ? null : ids;
+	}
+
+	/**
+	 * Accumulate the scores of the entries with ids in {@code [lo, hi)}, using
+	 * the fragments of the given hits.
+	 *
+	 * @param hits Hits to add to; must not already contain any entry to score
+	 * @param only Entries to score, or {@code null} to score all entries
+	 * @param canceled Polled between fragment lengths; may be {@code null}
+	 */
+	private void score(final Hits hits, final boolean[] only, final int lo,
+		final int hi, final BooleanSupplier canceled)
+	{
+		final int[][][] fragments = hits.fragments;
+		final int length = fragments.length;
+		final int words = (length + 63) >>> 6;
+
+		// Slot (plus one) of each visited id in the hit arrays, and the bit
+		// mask of claimed query characters for each slot
+		final int[] slots = new int[hi - lo];
+		final int first = hits.size();
+		long[] masks = new long[16 * words];
+
+		// Fragments are claimed longest first, then left-most first. An id
+		// claims a fragment only if none of its characters were claimed by an
+		// earlier fragment for that same id.
+		for (int l = Math.min(length, maxKeywordLength); l > 0; l--) {
+			if (canceled != null && canceled.getAsBoolean()) return;
+
+			for (int start = 0; start + l <= length; start++) {
+				final int[] ids = fragments[start][l - 1];
+				if (ids == null) continue;
+
+				final int end = start + l;
+				final int fragmentScore = (2 * l) - 1;
+
+				// Posting lists are sorted, so only walk the part in range
+				int p = lo == 0 ? 0 : Arrays.binarySearch(ids, lo);
+				if (p < 0) p = -(p + 1);
+				for (; p < ids.length && ids[p] < hi; p++) {
+					final int id = ids[p];
+					if (only != null && !only[id]) continue;
+
+					int slot = slots[id - lo] - 1;
+					if (slot < 0) {
+						slot = hits.add(id, 0);
+						slots[id - lo] = slot + 1;
+						if ((slot - first + 1) * words > masks.length) {
+							masks = Arrays.copyOf(masks, masks.length * 2);
+						}
+					}
+					final int offset = (slot - first) * words;
+					if (!intersects(masks, offset, start, end)) {
+						claim(masks, offset, start, end);
+						hits.scores[slot] += fragmentScore;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return true if any bit in {@code [start, end)} of the bit mask beginning
+	 *         at {@code offset} is set.
+	 */
+	private static boolean intersects(final long[] masks, final int offset,
+		final int start, final int end)
+	{
+		for (int i = start; i < end; i++) {
+			if ((masks[offset + (i >>> 6)] & (1L << i)) != 0) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Set all bits in {@code [start, end)} of the bit mask beginning at
+	 * {@code offset}.
+	 */
+	private static void claim(final long[] masks, final int offset,
+		final int start, final int end)
+	{
+		for (int i = start; i < end; i++) {
+			masks[offset + (i >>> 6)] |= 1L << i;
+		}
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * Parallel arrays of matched ids and their scores for a single query. The
+	 * fragment lookups of the query are retained, so that a
+	 * {@link OpSearchIndex#refine refined} query can reuse them.
+	 */
+	public static class Hits {
+
+		private final OpSearchIndex index;
+		private final String query;
+		private final int[][][] fragments;
+		private int[] ids = new int[16];
+		private int[] scores = new int[16];
+		private int count;
+
+		// Entries rescored for a refined query; null if all entries were scored
+		private boolean[] affected;
+
+		// Best entries, if already selected while scoring
+		private TopK top;
+
+		private Hits(final OpSearchIndex index, final String query, final int[][][] fragments) {
+			this.index = index;
+			this.query = query;
+			this.fragments = fragments;
+		}
+
+		/**
+		 * @return The query these hits were scored against.
+		 */
+		public String getQuery() {
+			return query;
+		}
+
+		/**
+		 * @return The number of matched entries.
+		 */
+		public int size() {
+			return count;
+		}
+
+		/**
+		 * @return The id of the {@code i}th matched entry.
+		 */
+		public int id(final int i) {
+			return ids[i];
+		}
+
+		/**
+		 * @return The score of the {@code i}th matched entry.
+		 */
+		public int score(final int i) {
+			return scores[i];
+		}
+
+		/**
+		 * Rank all entries of the index by their score against this query.
+		 * Entries absent from these hits score 0.
+		 *
+		 * @param limit Maximum number of entries to return
+		 * @param minScorePercent Only entries scoring at least this percentage
+		 *            of the best score are returned. With 100, only the best
+		 *            scoring entries are returned; lower values allow more
+		 *            "fuzziness".
+		 * @return The ids of the best entries, in descending score order and
+		 *         then in ascending id order.
+		 */
+		public int[] rank(final int limit, final int minScorePercent) {
+			final TopK top = top(limit);
+			final int threshold = (int) Math.ceil(top.maxScore() * (minScorePercent / 100.0));
+
+			// If zero scores are acceptable, fill any remaining room with the
+			// entries that did not match at all
+			if (threshold == 0 && !top.isFull()) {
+				final boolean[] hit = new boolean[index.size];
+				for (int i = 0; i < count; i++)
+					hit[ids[i]] = true;
+				for (int id = 0; id < hit.length && !top.isFull(); id++) {
+					if (!hit[id])
+						top.offer(id, 0);
+				}
+			}
+
+			return top.ids(threshold);
+		}
+
+		/**
+		 * Select the best matched entries. Unlike
+		 * {@link #rank(int, int)}, entries absent from these hits are never
+		 * selected, so the rest of the index is not visited.
+		 *
+		 * @param limit Maximum number of entries to select
+		 * @return A new selection of the best {@code limit} entries of these
+		 *         hits, with their scores.
+		 */
+		public TopK top(final int limit) {
+			final TopK top = new TopK(limit);
+			if (this.top != null && this.top.capacity() == limit) {
+				top.offerAll(this.top);
+			} else {
+				for (int i = 0; i < count; i++)
+					top.offer(ids[i], scores[i]);
+			}
+			return top;
+		}
+
+		private void addAll(final Hits other) {
+			for (int i = 0; i < other.count; i++)
+				add(other.ids[i], other.scores[i]);
+		}
+
+		private int add(final int id, final int score) {
+			if (count == ids.length) {
+				ids = Arrays.copyOf(ids, count * 2);
+				scores = Arrays.copyOf(scores, count * 2);
+			}
+			ids[count] = id;
+			scores[count] = score;
+			return count++;
+		}
+	}
+
+	/**
+	 * Scores the entries of a single id range for a parallel query.
+	 */
+	@SuppressWarnings("serial")
+	private static class PartitionTask extends RecursiveAction {
+
+		private final Hits hits;
+		private final boolean[] affected;
+		private final int lo;
+		private final int hi;
+		private final BooleanSupplier canceled;
+		private final TopK top;
+
+		private PartitionTask(final Hits query, final int lo, final int hi, final int limit,
+			final BooleanSupplier canceled)
+		{
+			hits = new Hits(query.index, query.query, query.fragments);
+			affected = query.affected;
+			this.lo = lo;
+			this.hi = hi;
+			this.canceled = canceled;
+			top = new TopK(limit);
+		}
+
+		@Override
+		protected void compute() {
+			if (canceled.getAsBoolean()) return;
+
+			hits.index.score(hits, affected, lo, hi, canceled);
+			for (int i = 0; i < hits.size(); i++)
+				top.offer(hits.id(i), hits.score(i));
+		}
+	}
+
+	/**
+	 * Scores a range of the sorted, distinct queries of a batch, refining
+	 * each query from its longest prefix in the range, if any.
+	 */
+	@SuppressWarnings("serial")
+	private class BatchTask extends RecursiveAction {
+
+		private final String[] queries;
+		private final Hits[] hits;
+		private final int lo;
+		private final int hi;
+		private final Map<String, int[]> lookups;
+
+		private BatchTask(final String[] queries, final Hits[] hits, final int lo, final int hi,
+			final Map<String, int[]> lookups)
+		{
+			this.queries = queries;
+			this.hits = hits;
+			this.lo = lo;
+			this.hi = hi;
+			this.lookups = lookups;
+		}
+
+		@Override
+		protected void compute() {
+			// The queries of this range which are prefixes of the current
+			// query. As the queries are sorted, they form a chain.
+			final ArrayDeque<Hits> prefixes = new ArrayDeque<>();
+			for (int i = lo; i < hi; i++) {
+				while (!prefixes.isEmpty() && !queries[i].startsWith(prefixes.peek().query))
+					prefixes.pop();
+				final Hits next = start(prefixes.peek(), queries[i], lookups);
+				score(next, next.affected, 0, size, null);
+				hits[i] = next;
+				prefixes.push(next);
+			}
+		}
+	}
+
+	/**
+	 * Accumulates entries and their keyword dictionaries, then produces an
+	 * immutable {@link OpSearchIndex}. Entries must be added in increasing id
+	 * order; builders for consecutive id ranges can be filled independently
+	 * and then combined with {@link #addAll(Builder)}.
+	 */
+	public static class Builder {
+
+		private final StringBuilder text = new StringBuilder();
+		private final IntList starts = new IntList();
+		private final IntList ids = new IntList();
+		private final Map<String, IntList> segments = new HashMap<>();
+		private int size;
+
+		/**
+		 * Add an entry described by the given text, using the next available
+		 * id.
+		 *
+		 * @return The id of the new entry
+		 * @see #add(int, String, char...)
+		 */
+		public int add(final String string, final char... delims) {
+			final int id = size;
+			add(id, string, delims);
+			return id;
+		}
+
+		/**
+		 * Add an entry with the given id. Its dictionary is derived from the
+		 * given text as follows:
+		 * <ul>
+		 * <li>For each delimiter: split the text before each occurrence of the
+		 * delimiter</li>
+		 * <li>Every split string but the last is a keyword, including its
+		 * delimiters</li>
+		 * <li>For the last split string: every substring is a keyword, except
+		 * for its final character on its own</li>
+		 * </ul>
+		 * <p>
+		 * For example, given the text "org.scijava.haha" and delimiter ".",
+		 * the keywords are:
+		 * <ul>
+		 * <li>"org.", ".scijava.", ".", ".h", "h", "a", "ah", "aha", "hah",
+		 * "haha", ...</li>
+		 * </ul>
+		 * </p>
+		 *
+		 * @param id Id of the new entry, greater than any id added so far
+		 * @param string Lowercase text of the new entry
+		 * @param delims Delimiters separating the segments of the text
+		 */
+		public void add(final int id, final String string, final char... delims) {
+			if (id < size)
+				throw new IllegalArgumentException("Ids must be added in increasing order: " + id);
+			size = id + 1;
+
+			String strOfInterest = string;
+
+			// For each delimiter, add all leading split strings and save the
+			// final split
+			for (final char delim : delims) {
+				int dotIndex = 0;
+				while (dotIndex >= 0) {
+					final int startIndex = dotIndex;
+					dotIndex = string.indexOf(delim, dotIndex + 1);
+
+					if (dotIndex < 0) {
+						strOfInterest = string.substring(startIndex, string.length());
+					} else {
+						final String segment = string.substring(startIndex, dotIndex + 1);
+						IntList segmentIds = segments.get(segment);
+						if (segmentIds == null) {
+							segmentIds = new IntList();
+							segments.put(segment, segmentIds);
+						}
+						if (segmentIds.size == 0 || segmentIds.values[segmentIds.size - 1] != id)
+							segmentIds.add(id);
+					}
+				}
+			}
+
+			// All substrings of the final split are found by the dictionary
+			starts.add(text.length());
+			ids.add(id);
+			text.append(strOfInterest).append(SubstringDictionary.TERMINATOR);
+		}
+
+		/**
+		 * Append all entries of the given builder, whose ids must all be greater
+		 * than the ids of this builder. The given builder must not be used
+		 * afterwards.
+		 */
+		public void addAll(final Builder following) {
+			final int offset = text.length();
+			text.append(following.text);
+			for (int i = 0; i < following.starts.size; i++)
+				starts.add(following.starts.values[i] + offset);
+			ids.addAll(following.ids);
+			for (final Map.Entry<String, IntList> entry : following.segments.entrySet()) {
+				final IntList segmentIds = segments.get(entry.getKey());
+				if (segmentIds == null)
+					segments.put(entry.getKey(), entry.getValue());
+				else
+					segmentIds.addAll(entry.getValue());
+			}
+			size = Math.max(size, following.size);
+		}
+
+		/**
+		 * @return An index over all entries added so far.
+		 */
+		public OpSearchIndex build() {
+			final Map<String, int[]> index = new HashMap<>(segments.size() * 2);
+			for (final Map.Entry<String, IntList> entry : segments.entrySet())
+				index.put(entry.getKey(), entry.getValue().toArray());
+
+			final char[] chars = new char[text.length()];
+			text.getChars(0, chars.length, chars, 0);
+			return new OpSearchIndex(new SubstringDictionary(chars, starts.toArray(), ids.toArray(),
+				SubstringDictionary.sortSuffixes(chars), index, size));
+		}
+	}
+
+	/**
+	 * Growable list of ints.
+	 */
+	private static class IntList {
+
+		private int[] values = new int[4];
+		private int size;
+
+		private void add(final int value) {
+			if (size == values.length) values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		private void addAll(final IntList other) {
+			if (size + other.size > values.length)
+				values = Arrays.copyOf(values, Math.max(size + other.size, size * 2));
+			System.arraycopy(other.values, 0, values, size, other.size);
+			size += other.size;
+		}
+
+		private int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import org.scijava.command.CommandInfo;
+
+/**
+ * A single, immutable result of {@link OpFinderService#search}: an op with
+ * its display strings and its score against the query.
+ */
+public class OpSearchResult {
+
+	// -- Fields --
+
+	private final String name;
+	private final String codeCall;
+	private final String referenceClass;
+	private final CommandInfo info;
+	private final int score;
+
+	// -- Constructor --
+
+	/**
+	 * @param name Display name of the op in the searched mode
+	 */
+	public OpSearchResult(final String name, final String codeCall, final String referenceClass,
+			final CommandInfo info, final int score) {
+		this.name = name;
+		this.codeCall = codeCall;
+		this.referenceClass = referenceClass;
+		this.info = info;
+		this.score = score;
+	}
+
+	// -- OpSearchResult methods --
+
+	/**
+	 * @return The op's signature: in full for advanced searches, simplified
+	 *         for simple searches.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * @return The script snippet to invoke the op.
+	 */
+	public String getCodeCall() {
+		return codeCall;
+	}
+
+	/**
+	 * @return The class implementing the op.
+	 */
+	public String getReferenceClass() {
+		return referenceClass;
+	}
+
+	/**
+	 * @return The {@link CommandInfo} of the op.
+	 */
+	public CommandInfo getCommandInfo() {
+		return info;
+	}
+
+	/**
+	 * @return The score of the op against the query. Higher is better.
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return name + " (" + score + ")";
+	}
+}
@@ -0,0 +1,136 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.lang.reflect.Type;
+import java.util.concurrent.ConcurrentHashMap;
+
+import net.imagej.ops.OpUtils;
+
+import org.scijava.command.CommandInfo;
+import org.scijava.module.ModuleItem;
+
+/**
+ * Builds the HTML summary of an op shown at the top of the {@link OpFinder}
+ * details pane: its signature, implementing class, and a table of its inputs
+ * and outputs. Everything comes from the op's {@link CommandInfo}, so the
+ * summary is available immediately, unlike its Javadoc. Summaries are cached
+ * per op.
+ */
+public class OpSummarizer {
+
+	// -- Fields --
+
+	private final ConcurrentHashMap<String, String> summaries = new ConcurrentHashMap<>();
+
+	// -- OpSummarizer methods --
+
+	/**
+	 * @return The HTML summary of the given op.
+	 */
+	public String summarize(final CommandInfo info) {
+		final String key = info.getDelegateClassName();
+		String summary = summaries.get(key);
+		if (summary == null) {
+			summary = createSummary(info);
+			summaries.putIfAbsent(key, summary);
+		}
+		return summary;
+	}
+
+	// -- Helper methods --
+
+	private static String createSummary(final CommandInfo info) {
+		final StringBuilder sb = new StringBuilder();
+		sb.append("<h2>").append(escape(OpUtils.getOpName(info))).append("</h2>");
+		sb.append("<p><code>").append(escape(OpUtils.simpleString(info))).append("</code></p>");
+		sb.append("<p>Implemented by <code>").append(escape(info.getDelegateClassName())).append("</code></p>");
+		appendItems(sb, "Inputs", info.inputs());
+		appendItems(sb, "Outputs", info.outputs());
+		return sb.toString();
+	}
+
+	/**
+	 * Append a table of the given parameters, if there are any.
+	 */
+	private static void appendItems(final StringBuilder sb, final String title,
+			final Iterable<ModuleItem<?>> items) {
+		boolean empty = true;
+		for (final ModuleItem<?> item : items) {
+			if (empty) {
+				sb.append("<h3>").append(title).append("</h3>");
+				sb.append("<table><tr><th align=\"left\">Name</th><th align=\"left\">Type</th>");
+				sb.append("<th align=\"left\">Description</th></tr>");
+				empty = false;
+			}
+			sb.append("<tr><td><code>").append(escape(item.getName()));
+			if (!item.isRequired())
+				sb.append("?");
+			sb.append("</code></td><td><code>").append(escape(typeName(item))).append("</code></td><td>");
+			final String description = item.getDescription();
+			if (description != null)
+				sb.append(escape(description));
+			sb.append("</td></tr>");
+		}
+		if (!empty)
+			sb.append("</table>");
+	}
+
+	/**
+	 * @return The generic type of the given item, without package names.
+	 */
+	private static String typeName(final ModuleItem<?> item) {
+		final Type type = item.getGenericType();
+		if (type == null)
+			return item.getType().getSimpleName();
+		if (type instanceof Class)
+			return ((Class<?>) type).getSimpleName();
+		return type.getTypeName().replaceAll("\\b[a-z][a-z0-9_]*\\.", "").replace('$', '.');
+	}
+
+	private static String escape(final String text) {
+		if (text == null)
+			return "";
+		final StringBuilder sb = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			switch (c) {
+			case '<':
+				sb.append("&lt;");
+				break;
+			case '>':
+				sb.append("&gt;");
+				break;
+			case '&':
+				sb.append("&amp;");
+				break;
+			case '"':
+				sb.append("&quot;");
+				break;
+			default:
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -22,6 +22,11 @@
  */
 package net.imagej.ui.swing.ops;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.swing.tree.TreePath;
+
 import org.jdesktop.swingx.treetable.AbstractTreeTableModel;
 import org.jdesktop.swingx.treetable.TreeTableModel;
 
@@ -59,25 +64,26 @@ public class OpTreeTableModel extends AbstractTreeTableModel {
 		return simple;
 	}
 
+	/**
+	 * @return The path from the root of this model to the given node.
+	 */
+	public TreePath getPathToRoot(final OpTreeTableNode node) {
+		final List<Object> path = new ArrayList<>();
+		for (OpTreeTableNode n = node; n != null; n = n.getParent())
+			path.add(0, n);
+		return new TreePath(path.toArray());
+	}
+
 	// -- TreeTableModel Methods --
 
 	@Override
 	public int getColumnCount() {
-		return isSimple() ? 1 : 3;
+		return getColumnCount(isSimple());
 	}
 
 	@Override
 	public String getColumnName(final int column) {
-		switch (column) {
-		case 0:
-			return isSimple() ? USER_COLUMNS[0] : DEV_COLUMNS[0];
-		case 1:
-			return DEV_COLUMNS[1];
-		case 2:
-			return DEV_COLUMNS[2];
-		default:
-			return "Unknown";
-		}
+		return getColumnName(isSimple(), column);
 	}
 
 	@Override
@@ -98,38 +104,58 @@ public class OpTreeTableModel extends AbstractTreeTableModel {
 	@Override
 	public Object getChild(final Object node, final int index) {
 		final OpTreeTableNode treenode = (OpTreeTableNode) node;
-		return treenode.getChildren().get(index);
+		return treenode.getChild(index);
 	}
 
 	@Override
 	public int getChildCount(final Object parent) {
 		final OpTreeTableNode treenode = (OpTreeTableNode) parent;
-		return treenode.getChildren().size();
+		return treenode.getChildCount();
 	}
 
 	@Override
 	public int getIndexOfChild(final Object parent, final Object child) {
-		final OpTreeTableNode treenode = (OpTreeTableNode) parent;
-		for (int i = 0; i > treenode.getChildren().size(); i++) {
-			if (treenode.getChildren().get(i) == child) {
-				return i;
-			}
-		}
-
-		return 0;
+		if (!(parent instanceof OpTreeTableNode) || !(child instanceof OpTreeTableNode))
+			return -1;
+		// Nodes know their position, so this is constant time
+		final OpTreeTableNode treenode = (OpTreeTableNode) child;
+		return parent.equals(treenode.getParent()) ? treenode.getIndexInParent() : -1;
 	}
 
 	@Override
 	public boolean isLeaf(final Object node) {
 		final OpTreeTableNode treenode = (OpTreeTableNode) node;
-		if (treenode.getChildren().size() > 0) {
-			return false;
-		}
-		return true;
+		return treenode.getChildCount() == 0;
 	}
 
 	@Override
 	public OpTreeTableNode getRoot() {
 		return (OpTreeTableNode) super.getRoot();
 	}
+
+	// -- Helper methods --
+
+	/**
+	 * @return The number of columns shown in the given mode. Shared with
+	 *         {@link OpResultTableModel}.
+	 */
+	static int getColumnCount(final boolean simple) {
+		return simple ? USER_COLUMNS.length : DEV_COLUMNS.length;
+	}
+
+	/**
+	 * @return The name of the given column in the given mode.
+	 */
+	static String getColumnName(final boolean simple, final int column) {
+		switch (column) {
+		case 0:
+			return simple ? USER_COLUMNS[0] : DEV_COLUMNS[0];
+		case 1:
+			return DEV_COLUMNS[1];
+		case 2:
+			return DEV_COLUMNS[2];
+		default:
+			return "Unknown";
+		}
+	}
 }
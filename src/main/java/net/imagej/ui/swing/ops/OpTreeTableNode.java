@@ -22,6 +22,7 @@
  */
 package net.imagej.ui.swing.ops;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -36,6 +37,18 @@ import org.scijava.command.CommandInfo;
  * {@link TreeTableNode} implementation with tailored for ImageJ Ops usage. In
  * the tree structure built with these nodes, leaves correspond to concrete
  * {@link Op}s. Intermediate nodes are {@link Namespace}s.
+ * <p>
+ * Nodes are either standalone, holding their own fields and children, or
+ * thin views of a node of an {@link OpCatalog} in one mode. Views are cheap
+ * to create and immutable; two views of the same catalog node are equal. A
+ * view creates the views of its children on demand, the first time each one
+ * is requested, and keeps them; so only the parts of the catalog which are
+ * actually looked at are materialized.
+ * </p>
+ * <p>
+ * Every node added to a parent knows that parent and its position in it, so
+ * tree paths and child indices are resolved without scanning.
+ * </p>
  *
  * @author Mark Hiner
  */
@@ -44,9 +57,20 @@ public class OpTreeTableNode implements Comparable<OpTreeTableNode> {
 	private String referenceClass = "";
 	private String codeCall = "";
 	private CommandInfo info;
-	private final List<OpTreeTableNode> children = new ArrayList<>();
+	private final List<OpTreeTableNode> children;
+	private boolean sorted = true;
 
-	// -- Constructor --
+	// Position in the tree, once added to a parent
+	private OpTreeTableNode parent;
+	private int index = -1;
+
+	// Catalog node this is a view of, if any
+	private final OpCatalog catalog;
+	private final int node;
+	private final boolean simple;
+	private OpTreeTableNode[] views;
+
+	// -- Constructors --
 
 	/**
 	 * Varargs constructor. Positions are assigned in the following
@@ -59,6 +83,10 @@ public class OpTreeTableNode implements Comparable<OpTreeTableNode> {
 	 * </ul>
 	 */
 	public OpTreeTableNode(final String... fields) {
+		children = new ArrayList<>();
+		catalog = null;
+		node = -1;
+		simple = false;
 		if (fields.length > 0)
 			simpleName = fields[0];
 		if (fields.length > 1)
@@ -67,19 +95,32 @@ public class OpTreeTableNode implements Comparable<OpTreeTableNode> {
 			referenceClass = fields[2];
 	}
 
+	/**
+	 * Create a view of the given node of an {@link OpCatalog}.
+	 *
+	 * @param simple Whether to show the node as in simple mode
+	 */
+	public OpTreeTableNode(final OpCatalog catalog, final int node, final boolean simple) {
+		children = null;
+		this.catalog = catalog;
+		this.node = node;
+		this.simple = simple;
+	}
+
 	// -- OpTreeTableNode Methods --
 
 	/**
 	 * @return The base name for this node
 	 */
 	public String getName() {
-		return simpleName;
+		return catalog == null ? simpleName : catalog.getName(simple, node);
 	}
 
 	/**
 	 * Set the name for this node
 	 */
 	public void setName(final String simpleName) {
+		checkStandalone();
 		this.simpleName = simpleName;
 	}
 
@@ -87,13 +128,14 @@ public class OpTreeTableNode implements Comparable<OpTreeTableNode> {
 	 * @return The {@link Op} class referenced by this node.
 	 */
 	public String getReferenceClass() {
-		return referenceClass;
+		return catalog == null ? referenceClass : catalog.getReferenceClass(node);
 	}
 
 	/**
 	 * Sets the {@link Op} class referenced by this node.
 	 */
 	public void setReferenceClass(final String referenceClass) {
+		checkStandalone();
 		this.referenceClass = referenceClass;
 	}
 
@@ -102,30 +144,97 @@ public class OpTreeTableNode implements Comparable<OpTreeTableNode> {
 	 *         node.
 	 */
 	public String getCodeCall() {
-		return codeCall;
+		return catalog == null ? codeCall : catalog.getCodeCall(node);
 	}
 
 	/**
 	 * Set the script snippet to invoke the {@link Op} referenced by this node.
 	 */
 	public void setCodeCall(final String codeCall) {
+		checkStandalone();
 		this.codeCall = codeCall;
 	}
 
 	/**
 	 * @return A list of related nodes if this is actually a {@link Namespace}
-	 *         node.
+	 *         node. The children of a view cannot be modified; to add
+	 *         children to a standalone node, use {@link #add} or
+	 *         {@link #append}.
 	 */
 	public List<OpTreeTableNode> getChildren() {
-		return children;
+		if (catalog == null) {
+			sortChildren();
+			return Collections.unmodifiableList(children);
+		}
+
+		return new AbstractList<OpTreeTableNode>() {
+
+			@Override
+			public OpTreeTableNode get(final int index) {
+				return getView(index);
+			}
+
+			@Override
+			public int size() {
+				return getChildCount();
+			}
+		};
+	}
+
+	/**
+	 * @return The number of children of this node.
+	 */
+	public int getChildCount() {
+		return catalog == null ? children.size() : catalog.getChildCount(simple, node);
+	}
+
+	/**
+	 * @return The {@code index}th child of this node.
+	 */
+	public OpTreeTableNode getChild(final int index) {
+		if (catalog != null)
+			return getView(index);
+		sortChildren();
+		return children.get(index);
+	}
+
+	/**
+	 * @return The node this node was added to, or {@code null}.
+	 */
+	public OpTreeTableNode getParent() {
+		return parent;
+	}
+
+	/**
+	 * @return The position of this node among the children of its parent,
+	 *         or -1 if it has no parent.
+	 */
+	public int getIndexInParent() {
+		if (parent != null)
+			parent.sortChildren();
+		return index;
 	}
 
 	/**
-	 * Add a child to this node.
+	 * Add a child to this node. Children added this way are kept sorted;
+	 * they are sorted once, when next accessed, rather than on every
+	 * insertion.
 	 */
 	public void add(final OpTreeTableNode child) {
-		final int index = -(Collections.binarySearch(children, child) + 1);
-		children.add(index, child);
+		append(child);
+		sorted = false;
+	}
+
+	/**
+	 * Add a child after all current children of this node, keeping the order
+	 * in which children are appended. Do not mix with {@link #add} on the
+	 * same node.
+	 */
+	public void append(final OpTreeTableNode child) {
+		checkStandalone();
+		child.parent = this;
+		child.index = children.size();
+		children.add(child);
 	}
 
 	/**
@@ -133,6 +242,7 @@ public class OpTreeTableNode implements Comparable<OpTreeTableNode> {
 	 * node.
 	 */
 	public void setCommandInfo(final CommandInfo info) {
+		checkStandalone();
 		this.info = info;
 	}
 
@@ -140,7 +250,7 @@ public class OpTreeTableNode implements Comparable<OpTreeTableNode> {
 	 * @return The {@link CommandInfo} for this node.
 	 */
 	public CommandInfo getCommandInfo() {
-		return info;
+		return catalog == null ? info : catalog.getCommandInfo(node);
 	}
 
 	// -- TreeTableNode Methods --
@@ -150,12 +260,65 @@ public class OpTreeTableNode implements Comparable<OpTreeTableNode> {
 		return getName();
 	}
 
+	// -- Object methods --
+
+	@Override
+	public boolean equals(final Object o) {
+		if (catalog == null || !(o instanceof OpTreeTableNode))
+			return this == o;
+		final OpTreeTableNode other = (OpTreeTableNode) o;
+		return catalog == other.catalog && node == other.node && simple == other.simple;
+	}
+
+	@Override
+	public int hashCode() {
+		return catalog == null ? super.hashCode() : (31 * node) + (simple ? 1 : 0);
+	}
+
 	// -- Comparable api --
 
 	@Override
 	public int compareTo(final OpTreeTableNode o) {
-		final int v = simpleName.compareTo(o.simpleName);
+		final int v = getName().compareTo(o.getName());
 		// sort by simple name first, then by reference class
-		return v != 0 ? v : referenceClass.compareTo(o.referenceClass);
+		return v != 0 ? v : getReferenceClass().compareTo(o.getReferenceClass());
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * @return The view of the {@code index}th child of this view, created
+	 *         when first requested.
+	 */
+	private synchronized OpTreeTableNode getView(final int index) {
+		if (views == null)
+			views = new OpTreeTableNode[catalog.getChildCount(simple, node)];
+		if (index < 0 || index >= views.length)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + views.length);
+		if (views[index] == null) {
+			final OpTreeTableNode view = new OpTreeTableNode(catalog, catalog.getChild(simple, node, index), simple);
+			view.parent = this;
+			view.index = index;
+			views[index] = view;
+		}
+		return views[index];
+	}
+
+	/**
+	 * Sort the children added since the last access, and update their
+	 * positions.
+	 */
+	private void sortChildren() {
+		if (sorted)
+			return;
+		Collections.sort(children);
+		for (int i = 0; i < children.size(); i++)
+			children.get(i).index = i;
+		sorted = true;
+	}
+
+	private void checkStandalone() {
+		if (catalog != null)
+			throw new UnsupportedOperationException("Catalog nodes cannot be modified");
 	}
 }
@@ -0,0 +1,319 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.GZIPInputStream;
+
+import org.jsoup.Jsoup;
+
+/**
+ * {@link JavadocSource} reading pages from a web server. Connections time out,
+ * can be aborted through their {@link JavadocRequest}, and are kept alive
+ * between requests. Expired pages are revalidated with conditional requests,
+ * so unchanged pages are not transferred again.
+ * <p>
+ * Response bodies are read on a small pool of reader threads. A blocked read
+ * from an {@link HttpURLConnection} can not be interrupted, and disconnecting
+ * it blocks until the read returns. So an aborted request stops waiting for
+ * its body at once, and the reader disconnects as soon as its current read
+ * returns, rather than transferring the rest of the body.
+ * </p>
+ */
+public class RemoteJavadocSource implements JavadocSource {
+
+	// -- Constants --
+
+	public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+	public static final int DEFAULT_READ_TIMEOUT = 10000;
+
+	private static final int MAX_REDIRECTS = 5;
+
+	// Bodies read at once; further reads wait for a free reader
+	private static final int MAX_READERS = 4;
+
+	// Seconds after which an idle reader thread ends
+	private static final int READER_KEEP_ALIVE = 30;
+
+	private static final ExecutorService READERS = createReaders();
+
+	// -- Fields --
+
+	private final String baseURL;
+	private final int connectTimeout;
+	private final int readTimeout;
+
+	// -- Constructors --
+
+	/**
+	 * @param baseURL URL of the Javadoc root, ending in '/'
+	 */
+	public RemoteJavadocSource(final String baseURL) {
+		this(baseURL, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+	}
+
+	/**
+	 * @param baseURL URL of the Javadoc root, ending in '/'
+	 * @param connectTimeout Milliseconds to wait for a connection
+	 * @param readTimeout Milliseconds to wait for data once connected
+	 */
+	public RemoteJavadocSource(final String baseURL, final int connectTimeout, final int readTimeout) {
+		this.baseURL = baseURL;
+		this.connectTimeout = connectTimeout;
+		this.readTimeout = readTimeout;
+	}
+
+	// -- JavadocSource methods --
+
+	@Override
+	public String getDetails(final JavadocRequest request) throws IOException {
+		URL url = new URL(baseURL + request.getPath() + ".html");
+		for (int redirects = 0;; redirects++) {
+			final HttpURLConnection connection = open(url, request);
+			request.onAbort(new Runnable() {
+
+				@Override
+				public void run() {
+					connection.disconnect();
+				}
+			});
+
+			try {
+				final int status = connection.getResponseCode();
+				switch (status) {
+				case HttpURLConnection.HTTP_OK:
+					final String body = read(connection, connection.getInputStream(), request, url);
+					request.setValidators(connection.getHeaderField("ETag"), connection.getLastModified());
+					return JavadocSource.extractDetails(Jsoup.parse(body, url.toString()));
+				case HttpURLConnection.HTTP_NOT_MODIFIED:
+					drain(connection, connection.getInputStream(), request, url);
+					return request.getCached() == null ? null : request.getCached().getHtml();
+				case HttpURLConnection.HTTP_NOT_FOUND:
+					drain(connection, connection.getErrorStream(), request, url);
+					return null;
+				case HttpURLConnection.HTTP_MOVED_PERM:
+				case HttpURLConnection.HTTP_MOVED_TEMP:
+				case HttpURLConnection.HTTP_SEE_OTHER:
+				case 307:
+				case 308:
+					// HttpURLConnection does not follow redirects across
+					// protocols, e.g. from http to https
+					final String location = connection.getHeaderField("Location");
+					drain(connection, connection.getInputStream(), request, url);
+					if (location == null || redirects == MAX_REDIRECTS)
+						throw new IOException("Too many or invalid redirects: " + url);
+					url = new URL(url, location);
+					continue;
+				default:
+					drain(connection, connection.getErrorStream(), request, url);
+					throw new IOException("HTTP " + status + " for: " + url);
+				}
+			} catch (final IOException exc) {
+				if (request.isAborted())
+					throw abortedException(url, exc);
+				throw exc;
+			} finally {
+				request.onAbort(null);
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	private HttpURLConnection open(final URL url, final JavadocRequest request) throws IOException {
+		if (request.isAborted())
+			throw abortedException(url, null);
+		final URLConnection connection = url.openConnection();
+		if (!(connection instanceof HttpURLConnection))
+			throw new IOException("Not an HTTP URL: " + url);
+
+		final HttpURLConnection http = (HttpURLConnection) connection;
+		http.setConnectTimeout(connectTimeout);
+		http.setReadTimeout(readTimeout);
+		http.setInstanceFollowRedirects(false);
+		http.setUseCaches(false);
+		http.setRequestProperty("Accept-Encoding", "gzip");
+		if (request.getCached() != null) {
+			if (request.getETag() != null)
+				http.setRequestProperty("If-None-Match", request.getETag());
+			if (request.getLastModified() > 0)
+				http.setIfModifiedSince(request.getLastModified());
+		}
+		return http;
+	}
+
+	private static ExecutorService createReaders() {
+		final ThreadPoolExecutor readers = new ThreadPoolExecutor(MAX_READERS, MAX_READERS, READER_KEEP_ALIVE,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+					@Override
+					public Thread newThread(final Runnable r) {
+						final Thread thread = new Thread(r, "op-finder-javadoc-reader");
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		readers.allowCoreThreadTimeOut(true);
+		return readers;
+	}
+
+	/**
+	 * Read and decode the whole response body. The stream is read to its end
+	 * and closed, which allows the connection to be reused.
+	 */
+	private static String read(final HttpURLConnection connection, final InputStream stream,
+			final JavadocRequest request, final URL url) throws IOException {
+		final byte[] body = await(connection, new Callable<byte[]>() {
+
+			@Override
+			public byte[] call() throws IOException {
+				final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+				try (final InputStream in = "gzip".equalsIgnoreCase(connection.getContentEncoding())
+						? new GZIPInputStream(stream) : stream) {
+					final byte[] buffer = new byte[8192];
+					int n;
+					while (!request.isAborted() && (n = in.read(buffer)) >= 0)
+						bytes.write(buffer, 0, n);
+				}
+				return bytes.toByteArray();
+			}
+		}, request, url);
+		return new String(body, charset(connection.getContentType()));
+	}
+
+	/**
+	 * Read and discard a response body, so that the connection can be reused.
+	 */
+	private static void drain(final HttpURLConnection connection, final InputStream stream,
+			final JavadocRequest request, final URL url) throws IOException {
+		if (stream == null)
+			return;
+		await(connection, new Callable<Void>() {
+
+			@Override
+			public Void call() throws IOException {
+				try (final InputStream in = stream) {
+					final byte[] buffer = new byte[8192];
+					while (!request.isAborted() && in.read(buffer) >= 0) {
+						// discard
+					}
+				}
+				return null;
+			}
+		}, request, url);
+	}
+
+	/**
+	 * Run a read of a response body on a {@link #READERS} thread, and wait for
+	 * it unless the request is aborted. The read must stop once the request is
+	 * aborted. An aborted connection is disconnected by whichever thread owns
+	 * the read, so the aborting thread never blocks: by the reader once its
+	 * current read returns, or by the abort itself if the read has not started.
+	 */
+	private static <T> T await(final HttpURLConnection connection, final Callable<T> read,
+			final JavadocRequest request, final URL url) throws IOException {
+		// Set by the reader when it starts, or by an abort which prevents that
+		final AtomicBoolean claimed = new AtomicBoolean();
+		final Future<T> result = READERS.submit(new Callable<T>() {
+
+			@Override
+			public T call() throws Exception {
+				if (!claimed.compareAndSet(false, true))
+					return null;
+				try {
+					return read.call();
+				} finally {
+					if (request.isAborted())
+						connection.disconnect();
+				}
+			}
+		});
+		final Runnable abort = new Runnable() {
+
+			@Override
+			public void run() {
+				result.cancel(false);
+				if (claimed.compareAndSet(false, true))
+					connection.disconnect();
+			}
+		};
+		request.onAbort(abort);
+		try {
+			final T value = result.get();
+			if (request.isAborted())
+				throw abortedException(url, null);
+			return value;
+		} catch (final CancellationException exc) {
+			throw abortedException(url, null);
+		} catch (final InterruptedException exc) {
+			request.abort();
+			Thread.currentThread().interrupt();
+			throw abortedException(url, null);
+		} catch (final ExecutionException exc) {
+			if (exc.getCause() instanceof IOException)
+				throw (IOException) exc.getCause();
+			throw new IOException(exc.getCause());
+		}
+	}
+
+	private static Charset charset(final String contentType) {
+		if (contentType != null) {
+			for (final String param : contentType.split(";")) {
+				final String[] pair = param.trim().split("=", 2);
+				if (pair.length == 2 && pair[0].trim().equalsIgnoreCase("charset")) {
+					try {
+						return Charset.forName(pair[1].trim().replace("\"", ""));
+					} catch (final IllegalArgumentException exc) {
+						break;
+					}
+				}
+			}
+		}
+		return StandardCharsets.UTF_8;
+	}
+
+	private static InterruptedIOException abortedException(final URL url, final IOException cause) {
+		final InterruptedIOException exc = new InterruptedIOException("Aborted: " + url);
+		if (cause != null)
+			exc.initCause(cause);
+		return exc;
+	}
+}
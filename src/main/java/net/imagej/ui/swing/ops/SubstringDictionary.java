@@ -0,0 +1,413 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Answers which entries contain a given fragment, without materializing the
+ * fragments themselves. The searchable text of every entry is stored once, in
+ * a single character array, and indexed by a generalized suffix array: the
+ * start offsets of all its suffixes, in lexicographic order. The suffixes
+ * beginning with a fragment are then a contiguous range, found by binary
+ * search.
+ * <p>
+ * Each entry may also have a few <em>segments</em> which only match as a
+ * whole, such as the packages of a class name. These are kept in a small map.
+ * </p>
+ */
+public class SubstringDictionary {
+
+	// -- Constants --
+
+	/** Ends the text of every entry. Sorts before any other character. */
+	static final char TERMINATOR = '\0';
+
+	// Range size below which suffixes are sorted by insertion
+	private static final int INSERTION_SORT_SIZE = 16;
+
+	// -- Fields --
+
+	private final char[] text;
+	private final int[] starts;
+	private final int[] ids;
+	private final int[] suffixes;
+	private final Map<String, int[]> segments;
+	private final int size;
+	private final int maxLength;
+
+	// -- Constructor --
+
+	/**
+	 * @param text The text of all entries, each followed by {@link #TERMINATOR}
+	 * @param starts Offset of the text of each entry, in increasing order
+	 * @param ids Id of each entry
+	 * @param suffixes Sorted suffix offsets, as returned by
+	 *            {@link #sortSuffixes(char[])}
+	 * @param segments Map of each whole segment to the sorted ids containing
+	 *            it
+	 * @param size Total number of ids
+	 */
+	SubstringDictionary(final char[] text, final int[] starts, final int[] ids,
+		final int[] suffixes, final Map<String, int[]> segments, final int size)
+	{
+		this.text = text;
+		this.starts = starts;
+		this.ids = ids;
+		this.suffixes = suffixes;
+		this.segments = segments;
+		this.size = size;
+
+		int max = 0;
+		for (int i = 0; i < starts.length; i++) {
+			max = Math.max(max, end(i) - starts[i] - 1);
+		}
+		for (final String segment : segments.keySet())
+			max = Math.max(max, segment.length());
+		maxLength = max;
+	}
+
+	// -- SubstringDictionary methods --
+
+	/**
+	 * @return The length of the longest fragment that may be found in this
+	 *         dictionary.
+	 */
+	public int maxLength() {
+		return maxLength;
+	}
+
+	/**
+	 * @param fragment Lowercase fragment to look up
+	 * @return The sorted ids of all entries whose text contains
+	 *         {@code fragment} at any position but the last character, or
+	 *         which have {@code fragment} as a segment; {@code null} if there
+	 *         are none.
+	 */
+	public int[] lookup(final String fragment) {
+		final int lo = bound(fragment, false);
+		final int hi = bound(fragment, true);
+		final int[] segmentIds = segments.get(fragment);
+		if (lo == hi)
+			return segmentIds;
+
+		// Mark the owners of all matching suffixes, then read them back in id
+		// order. This also removes the duplicates of repeated fragments.
+		final long[] found = new long[(size + 63) >>> 6];
+		for (int i = lo; i < hi; i++) {
+			int entry = Arrays.binarySearch(starts, suffixes[i]);
+			if (entry < 0) entry = -entry - 2;
+			final int id = ids[entry];
+			found[id >>> 6] |= 1L << id;
+		}
+		if (segmentIds != null) {
+			for (final int id : segmentIds)
+				found[id >>> 6] |= 1L << id;
+		}
+
+		int count = 0;
+		for (final long word : found)
+			count += Long.bitCount(word);
+		final int[] result = new int[count];
+		int n = 0;
+		for (int w = 0; w < found.length; w++) {
+			for (long word = found[w]; word != 0; word &= word - 1)
+				result[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+		}
+		return result;
+	}
+
+	/**
+	 * Sort all suffixes of the given text that span at least two characters
+	 * before a {@link #TERMINATOR}. The last character of each entry is not
+	 * indexed on its own, as it was never a keyword of the original
+	 * dictionaries.
+	 *
+	 * @return The start offsets of the sorted suffixes.
+	 */
+	static int[] sortSuffixes(final char[] text) {
+		int count = 0;
+		for (int i = 0; i + 1 < text.length; i++) {
+			if (text[i] != TERMINATOR && text[i + 1] != TERMINATOR)
+				count++;
+		}
+		final int[] suffixes = new int[count];
+		count = 0;
+		for (int i = 0; i + 1 < text.length; i++) {
+			if (text[i] != TERMINATOR && text[i + 1] != TERMINATOR)
+				suffixes[count++] = i;
+		}
+		sort(text, suffixes, 0, suffixes.length, 0);
+		return suffixes;
+	}
+
+	/**
+	 * Derive a dictionary with some entries removed or renumbered, and the
+	 * entries of another dictionary added. The suffixes of the retained
+	 * entries are not sorted again: their order does not depend on other
+	 * entries, so they are merged with the sorted suffixes of the added
+	 * entries.
+	 *
+	 * @param idMap New id of each id of this dictionary, or -1 to remove its
+	 *            entry. Retained ids must keep their order.
+	 * @param added Dictionary of the entries to add, using new ids which are
+	 *            not retained from this dictionary
+	 * @param newSize Total number of ids of the result
+	 */
+	SubstringDictionary update(final int[] idMap, final SubstringDictionary added, final int newSize) {
+		// Copy the text of the retained entries, and note where each of their
+		// characters moved
+		final int[] moved = new int[text.length];
+		int entries = 0;
+		int length = 0;
+		for (int e = 0; e < starts.length; e++) {
+			if (idMap[ids[e]] >= 0) {
+				entries++;
+				length += end(e) - starts[e];
+			}
+		}
+		final char[] newText = new char[length + added.text.length];
+		final int[] newStarts = new int[entries + added.starts.length];
+		final int[] newIds = new int[newStarts.length];
+		int n = 0;
+		int offset = 0;
+		for (int e = 0; e < starts.length; e++) {
+			final int end = end(e);
+			if (idMap[ids[e]] < 0) {
+				Arrays.fill(moved, starts[e], end, -1);
+				continue;
+			}
+			newStarts[n] = offset;
+			newIds[n++] = idMap[ids[e]];
+			for (int i = starts[e]; i < end; i++)
+				moved[i] = offset + i - starts[e];
+			System.arraycopy(text, starts[e], newText, offset, end - starts[e]);
+			offset += end - starts[e];
+		}
+		System.arraycopy(added.text, 0, newText, offset, added.text.length);
+		for (int e = 0; e < added.starts.length; e++) {
+			newStarts[n] = offset + added.starts[e];
+			newIds[n++] = added.ids[e];
+		}
+
+		// Merge the retained and the added suffixes
+		int retained = 0;
+		for (final int suffix : suffixes) {
+			if (moved[suffix] >= 0)
+				retained++;
+		}
+		final int[] newSuffixes = new int[retained + added.suffixes.length];
+		int i = 0;
+		int j = 0;
+		for (int k = 0; k < newSuffixes.length; k++) {
+			while (i < suffixes.length && moved[suffixes[i]] < 0)
+				i++;
+			if (j == added.suffixes.length || i < suffixes.length &&
+				compare(newText, moved[suffixes[i]], offset + added.suffixes[j], 0) <= 0)
+			{
+				newSuffixes[k] = moved[suffixes[i++]];
+			} else {
+				newSuffixes[k] = offset + added.suffixes[j++];
+			}
+		}
+
+		final Map<String, int[]> newSegments = new HashMap<>(segments.size() + added.segments.size());
+		for (final Map.Entry<String, int[]> entry : segments.entrySet()) {
+			final int[] segmentIds = merge(entry.getValue(), idMap, added.segments.get(entry.getKey()));
+			if (segmentIds.length > 0)
+				newSegments.put(entry.getKey(), segmentIds);
+		}
+		for (final Map.Entry<String, int[]> entry : added.segments.entrySet()) {
+			if (!segments.containsKey(entry.getKey()))
+				newSegments.put(entry.getKey(), entry.getValue());
+		}
+
+		return new SubstringDictionary(newText, newStarts, newIds, newSuffixes, newSegments, newSize);
+	}
+
+	/**
+	 * The remaining accessors expose the raw arrays for persisting this
+	 * dictionary; callers must not modify them.
+	 */
+	char[] text() {
+		return text;
+	}
+
+	int[] starts() {
+		return starts;
+	}
+
+	int[] ids() {
+		return ids;
+	}
+
+	int[] suffixes() {
+		return suffixes;
+	}
+
+	Map<String, int[]> segments() {
+		return segments;
+	}
+
+	int size() {
+		return size;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * @return The offset just past the text of the given entry.
+	 */
+	private int end(final int entry) {
+		return entry + 1 < starts.length ? starts[entry + 1] : text.length;
+	}
+
+	/**
+	 * Merge sorted ids, renumbering the first ones.
+	 *
+	 * @param ids Sorted ids to renumber with {@code idMap}, dropping those
+	 *            mapped to -1
+	 * @param added Sorted ids to add, or {@code null}
+	 * @return The sorted union of the renumbered and the added ids.
+	 */
+	private static int[] merge(final int[] ids, final int[] idMap, final int[] added) {
+		final int[] addedIds = added == null ? new int[0] : added;
+		final int[] merged = new int[ids.length + addedIds.length];
+		int n = 0;
+		int j = 0;
+		for (final int id : ids) {
+			final int newId = idMap[id];
+			if (newId < 0)
+				continue;
+			while (j < addedIds.length && addedIds[j] < newId)
+				merged[n++] = addedIds[j++];
+			merged[n++] = newId;
+		}
+		while (j < addedIds.length)
+			merged[n++] = addedIds[j++];
+		return n == merged.length ? merged : Arrays.copyOf(merged, n);
+	}
+
+	/**
+	 * @param upper If false, find the first suffix not less than
+	 *            {@code fragment}. If true, find the first suffix greater than
+	 *            {@code fragment} and not starting with it.
+	 * @return The index of the bounding suffix.
+	 */
+	private int bound(final String fragment, final boolean upper) {
+		int lo = 0;
+		int hi = suffixes.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			final int c = comparePrefix(suffixes[mid], fragment);
+			if (c < 0 || (upper && c == 0))
+				lo = mid + 1;
+			else
+				hi = mid;
+		}
+		return lo;
+	}
+
+	/**
+	 * Compare the suffix at the given offset to a fragment, ignoring the part
+	 * of the suffix beyond the fragment's length.
+	 */
+	private int comparePrefix(final int offset, final String fragment) {
+		for (int i = 0; i < fragment.length(); i++) {
+			final char c = text[offset + i];
+			if (c == TERMINATOR)
+				return -1;
+			if (c != fragment.charAt(i))
+				return c < fragment.charAt(i) ? -1 : 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Multikey quicksort of the suffixes in {@code [lo, hi)}, all of which
+	 * share their first {@code depth} characters.
+	 */
+	private static void sort(final char[] text, final int[] a, int lo, int hi, int depth) {
+		while (hi - lo > INSERTION_SORT_SIZE) {
+			final int pivot = charAt(text, a[(lo + hi) >>> 1], depth);
+			int lt = lo;
+			int gt = hi - 1;
+			int i = lo;
+			while (i <= gt) {
+				final int c = charAt(text, a[i], depth);
+				if (c < pivot)
+					swap(a, lt++, i++);
+				else if (c > pivot)
+					swap(a, i, gt--);
+				else
+					i++;
+			}
+			sort(text, a, lo, lt, depth);
+			sort(text, a, gt + 1, hi, depth);
+
+			// Suffixes ending here are equal
+			if (pivot < 0)
+				return;
+			lo = lt;
+			hi = gt + 1;
+			depth++;
+		}
+
+		for (int i = lo + 1; i < hi; i++) {
+			final int offset = a[i];
+			int j = i;
+			while (j > lo && compare(text, a[j - 1], offset, depth) > 0) {
+				a[j] = a[j - 1];
+				j--;
+			}
+			a[j] = offset;
+		}
+	}
+
+	/**
+	 * @return The character at {@code depth} in the given suffix, or -1 past
+	 *         its end.
+	 */
+	private static int charAt(final char[] text, final int offset, final int depth) {
+		final char c = text[offset + depth];
+		return c == TERMINATOR ? -1 : c;
+	}
+
+	private static int compare(final char[] text, final int a, final int b, int depth) {
+		while (true) {
+			final int ca = charAt(text, a, depth);
+			final int cb = charAt(text, b, depth);
+			if (ca != cb || ca < 0)
+				return ca - cb;
+			depth++;
+		}
+	}
+
+	private static void swap(final int[] a, final int i, final int j) {
+		final int t = a[i];
+		a[i] = a[j];
+		a[j] = t;
+	}
+}
@@ -0,0 +1,211 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.util.Arrays;
+
+/**
+ * Bounded selection of the best scoring ids. Entries are ranked by descending
+ * score, then by ascending id. Internally this is a min-heap of packed
+ * {@code (score, id)} longs, so offering an entry never allocates and costs
+ * {@code O(log k)} at most.
+ */
+public class TopK {
+
+	// -- Fields --
+
+	private final int capacity;
+	private long[] heap;
+	private int size;
+
+	// -- Constructor --
+
+	/**
+	 * @param capacity Maximum number of entries to keep
+	 */
+	public TopK(final int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("Negative capacity: " + capacity);
+		this.capacity = capacity;
+		heap = new long[Math.min(capacity, 16)];
+	}
+
+	// -- TopK methods --
+
+	/**
+	 * @return The maximum number of entries this selection keeps.
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return The number of entries currently kept.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * @return true if no entry ranking below the current worst entry would be
+	 *         kept.
+	 */
+	public boolean isFull() {
+		return size == capacity;
+	}
+
+	/**
+	 * @return The lowest score currently kept. Only meaningful if this
+	 *         selection is not empty.
+	 */
+	public int minScore() {
+		return score(heap[0]);
+	}
+
+	/**
+	 * Offer an entry, which is kept if there is room or if it ranks above the
+	 * current worst entry.
+	 *
+	 * @param id Non-negative id of the entry
+	 * @param score Non-negative score of the entry
+	 */
+	public void offer(final int id, final int score) {
+		final long key = pack(id, score);
+		if (size < capacity) {
+			if (size == heap.length)
+				heap = Arrays.copyOf(heap, Math.min(capacity, size * 2));
+			heap[size] = key;
+			siftUp(size++);
+		} else if (capacity > 0 && key > heap[0]) {
+			heap[0] = key;
+			siftDown(0);
+		}
+	}
+
+	/**
+	 * Offer all entries of another selection.
+	 */
+	public void offerAll(final TopK other) {
+		for (int i = 0; i < other.size; i++) {
+			final long key = other.heap[i];
+			offer(id(key), score(key));
+		}
+	}
+
+	/**
+	 * @param minScore Lowest score to include
+	 * @return The kept ids with a score of at least {@code minScore}, best
+	 *         first.
+	 */
+	public int[] ids(final int minScore) {
+		final long[] sorted = sorted(minScore);
+		final int[] ids = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++)
+			ids[i] = id(sorted[i]);
+		return ids;
+	}
+
+	/**
+	 * @param minScore Lowest score to include
+	 * @return The scores of the kept ids with a score of at least
+	 *         {@code minScore}, in the order of {@link #ids(int)}.
+	 */
+	public int[] scores(final int minScore) {
+		final long[] sorted = sorted(minScore);
+		final int[] scores = new int[sorted.length];
+		for (int i = 0; i < sorted.length; i++)
+			scores[i] = score(sorted[i]);
+		return scores;
+	}
+
+	/**
+	 * @return The highest score currently kept, or 0 if empty.
+	 */
+	public int maxScore() {
+		int max = 0;
+		for (int i = 0; i < size; i++)
+			max = Math.max(max, score(heap[i]));
+		return max;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * @return The kept entries with a score of at least {@code minScore},
+	 *         best first.
+	 */
+	private long[] sorted(final int minScore) {
+		final long[] sorted = Arrays.copyOf(heap, size);
+		Arrays.sort(sorted);
+		int count = 0;
+		while (count < size && score(sorted[size - 1 - count]) >= minScore)
+			count++;
+		final long[] best = new long[count];
+		for (int i = 0; i < count; i++)
+			best[i] = sorted[size - 1 - i];
+		return best;
+	}
+
+	/**
+	 * Pack an entry so that better entries compare greater: the score fills
+	 * the upper 32 bits and the complement of the id the lower 32 bits.
+	 */
+	private static long pack(final int id, final int score) {
+		return ((long) score << 32) | (~id & 0xFFFFFFFFL);
+	}
+
+	private static int score(final long key) {
+		return (int) (key >>> 32);
+	}
+
+	private static int id(final long key) {
+		return ~(int) key;
+	}
+
+	private void siftUp(int i) {
+		final long key = heap[i];
+		while (i > 0) {
+			final int parent = (i - 1) >>> 1;
+			if (heap[parent] <= key)
+				break;
+			heap[i] = heap[parent];
+			i = parent;
+		}
+		heap[i] = key;
+	}
+
+	private void siftDown(int i) {
+		final long key = heap[i];
+		final int half = size >>> 1;
+		while (i < half) {
+			int child = 2 * i + 1;
+			if (child + 1 < size && heap[child + 1] < heap[child])
+				child++;
+			if (key <= heap[child])
+				break;
+			heap[i] = heap[child];
+			i = child;
+		}
+		heap[i] = key;
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import net.imagej.ops.Op;
+import net.imglib2.img.Img;
+
+import org.scijava.module.ModuleItem;
+
+/**
+ * Classifies the types of {@link Op} parameters for display in simple mode.
+ * Each type is either an image, a number, or anything else, as given by the
+ * simple name of its class: e.g. {@code ArrayImg} is an image and
+ * {@code double} is a number. Subtypes are deliberately not classified by
+ * their supertypes. Simple mode only shows one op per simple name, so
+ * labelling e.g. every {@code RandomAccessibleInterval} as an image would
+ * merge ops which are distinct in simple mode today.
+ * <p>
+ * Names are matched as a whole, by precompiled patterns, and the category of
+ * each class is memoized; so classifying the parameters of many ops sharing
+ * a few types costs one lookup per parameter.
+ * </p>
+ */
+public final class TypeClassifier {
+
+	// -- Constants --
+
+	// HACK -- the allowlist of classes that we will display in the simple view.
+	// Only Img and things convertible to Img will be considered.
+	private static final Set<Class<?>> SIMPLE_FILTER_CLASSES = Collections
+		.<Class<?>> singleton(Img.class);
+
+	// Simple names of the types shown as images or numbers
+	private static final Pattern IMAGE_NAMES = Pattern
+		.compile(OpFinder.IMG_REGEX + "|" + OpFinder.IMGPLUS_REGEX);
+	private static final Pattern NUMBER_NAMES = Pattern.compile(OpFinder.NUMBER_REGEX);
+
+	private static final String ARRAY_SUFFIX = "[]";
+
+	private static final ClassValue<Category> CATEGORIES = new ClassValue<Category>() {
+
+		@Override
+		protected Category computeValue(final Class<?> type) {
+			return classify(type.getSimpleName());
+		}
+	};
+
+	private static final ClassValue<Boolean> SIMPLE_INPUTS = new ClassValue<Boolean>() {
+
+		@Override
+		protected Boolean computeValue(final Class<?> type) {
+			for (final Class<?> acceptedClass : SIMPLE_FILTER_CLASSES) {
+				if (acceptedClass.isAssignableFrom(type))
+					return true;
+			}
+			return false;
+		}
+	};
+
+	// -- Constructors --
+
+	private TypeClassifier() {
+		// Utility class
+	}
+
+	// -- TypeClassifier methods --
+
+	/**
+	 * @return The category of the given type. Arrays are classified by their
+	 *         component type.
+	 */
+	public static Category classify(Class<?> type) {
+		while (type.isArray())
+			type = type.getComponentType();
+		return CATEGORIES.get(type);
+	}
+
+	/**
+	 * @return The category of the type with the given simple name, e.g. for
+	 *         types which are not available as a {@link Class}.
+	 */
+	public static Category classify(String typeName) {
+		while (typeName.endsWith(ARRAY_SUFFIX))
+			typeName = typeName.substring(0, typeName.length() - ARRAY_SUFFIX.length());
+		if (IMAGE_NAMES.matcher(typeName).matches())
+			return Category.IMAGE;
+		if (NUMBER_NAMES.matcher(typeName).matches())
+			return Category.NUMBER;
+		return Category.OTHER;
+	}
+
+	/**
+	 * @param type Type of a parameter, or {@code null} if unknown
+	 * @param typeName Simple name of the parameter's type, e.g. as shown in the
+	 *            op's signature
+	 * @return The label showing the given type in simple mode: the name of its
+	 *         category, or {@code typeName} itself if it is neither an image
+	 *         nor a number.
+	 */
+	public static String getLabel(final Class<?> type, final String typeName) {
+		final Category category = type == null ? classify(typeName) : classify(type);
+		if (category == Category.OTHER)
+			return typeName;
+
+		final StringBuilder sb = new StringBuilder(category.getLabel());
+		for (int i = typeName.length(); i >= ARRAY_SUFFIX.length() &&
+			typeName.startsWith(ARRAY_SUFFIX, i - ARRAY_SUFFIX.length()); i -= ARRAY_SUFFIX.length())
+		{
+			sb.append(ARRAY_SUFFIX);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * HACK
+	 * @return true iff the given input meets the criteria for display of its
+	 *         {@link Op} in simple mode.
+	 */
+	public static boolean isSimpleInput(final ModuleItem<?> input) {
+		return SIMPLE_INPUTS.get(input.getType());
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * What a parameter type is shown as in simple mode.
+	 */
+	public enum Category {
+		IMAGE("Image"), NUMBER("Number"), OTHER(null);
+
+		private final String label;
+
+		private Category(final String label) {
+			this.label = label;
+		}
+
+		/**
+		 * @return The label replacing types of this category, or {@code null}
+		 *         if they are shown as they are.
+		 */
+		public String getLabel() {
+			return label;
+		}
+	}
+}
@@ -0,0 +1,266 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import org.ahocorasick.trie.Emit;
+import org.ahocorasick.trie.Trie;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Tests that {@link OpSearchIndex} scores queries exactly like the
+ * Aho-Corasick tries it replaced: one non-overlapping trie per entry, holding
+ * every keyword of the entry.
+ */
+public class OpSearchIndexTest {
+
+	private static final String[] PACKAGES = { "net", "imagej", "ops", "imglib2", "filter", "math", "threshold" };
+
+	private static final int QUERIES = 300;
+
+	private static List<String> entries;
+	private static List<Trie> tries;
+	private static OpSearchIndex index;
+	private static ForkJoinPool pool;
+
+	@BeforeClass
+	public static void setUp() {
+		final Random random = new Random(11);
+		entries = new ArrayList<>();
+		tries = new ArrayList<>();
+		final OpSearchIndex.Builder builder = new OpSearchIndex.Builder();
+
+		// Both kinds of entries: class names split at '.', and simple names
+		for (int i = 0; i < 200; i++) {
+			final boolean qualified = i % 2 == 0;
+			final char[] delims = qualified ? new char[] { '.' } : new char[0];
+			final String entry = randomEntry(random, qualified);
+			entries.add(entry);
+			tries.add(buildTrie(entry, delims));
+			builder.add(entry, delims);
+		}
+		index = builder.build();
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterClass
+	public static void tearDown() {
+		pool.shutdown();
+	}
+
+	@Test
+	public void testScore() {
+		final Random random = new Random(3);
+		for (int i = 0; i < QUERIES; i++) {
+			final String query = randomQuery(random);
+			assertHits(query, index.score(query));
+		}
+	}
+
+	/**
+	 * Refining the hits of a query by an extended query scores like scoring
+	 * the extended query from scratch, as does refining unrelated hits.
+	 */
+	@Test
+	public void testRefine() {
+		final Random random = new Random(5);
+		for (int i = 0; i < QUERIES; i++) {
+			final String query = randomQuery(random);
+			final OpSearchIndex.Hits previous = index.score(query);
+
+			String extended = query;
+			for (int c = 1 + random.nextInt(4); c > 0; c--) {
+				extended += randomQuery(random).charAt(0);
+				assertHits(extended, index.refine(previous, extended));
+			}
+
+			final String other = randomQuery(random);
+			assertHits(other, index.refine(previous, other));
+		}
+	}
+
+	/**
+	 * A batch of queries, with duplicates and queries extending one another,
+	 * scores each query like scoring it alone.
+	 */
+	@Test
+	public void testScoreAll() {
+		final Random random = new Random(9);
+		final String[] queries = new String[QUERIES];
+		for (int i = 0; i < queries.length; i++) {
+			if (i > 0 && random.nextInt(3) == 0) {
+				// Repeat or extend an earlier query
+				final String earlier = queries[random.nextInt(i)];
+				queries[i] = random.nextBoolean() ? earlier : earlier + randomQuery(random).charAt(0);
+			}
+			else {
+				queries[i] = randomQuery(random);
+			}
+		}
+
+		final OpSearchIndex.Hits[] hits = index.scoreAll(queries, pool);
+		assertEquals(queries.length, hits.length);
+		for (int i = 0; i < queries.length; i++)
+			assertHits(queries[i], hits[i]);
+	}
+
+	/**
+	 * Selecting the best hits agrees with ranking the whole index, up to the
+	 * first entry which does not match.
+	 */
+	@Test
+	public void testTop() {
+		final Random random = new Random(13);
+		for (int i = 0; i < QUERIES; i++) {
+			final String query = randomQuery(random);
+			final OpSearchIndex.Hits hits = index.score(query);
+			final Map<Integer, Integer> scores = new HashMap<>();
+			for (int h = 0; h < hits.size(); h++)
+				scores.put(hits.id(h), hits.score(h));
+
+			final int limit = 1 + random.nextInt(20);
+			final int[] ranked = hits.rank(limit, 0);
+			final TopK top = hits.top(limit);
+			final int[] ids = top.ids(0);
+			final int[] topScores = top.scores(0);
+			assertEquals(Math.min(limit, hits.size()), ids.length);
+			for (int r = 0; r < ids.length; r++) {
+				assertEquals(query, ranked[r], ids[r]);
+				assertEquals(query, scores.get(ids[r]).intValue(), topScores[r]);
+			}
+			if (ids.length < ranked.length)
+				assertNull(query, scores.get(ranked[ids.length]));
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Check the given hits against the scores of all tries, where an entry
+	 * scoring 0 must be absent from the hits.
+	 */
+	private static void assertHits(final String query, final OpSearchIndex.Hits hits) {
+		assertEquals(query, hits.getQuery());
+
+		final Map<Integer, Integer> actual = new HashMap<>();
+		for (int i = 0; i < hits.size(); i++)
+			assertNull(query + ": duplicate id " + hits.id(i), actual.put(hits.id(i), hits.score(i)));
+
+		for (int id = 0; id < tries.size(); id++) {
+			int score = 0;
+			for (final Emit e : tries.get(id).parseText(query))
+				score += ((2 * e.getKeyword().length()) - 1);
+			assertEquals(query + " against " + entries.get(id), score == 0 ? null : score, actual.get(id));
+		}
+	}
+
+	/**
+	 * Build the trie of an entry as the finder used to: with all keywords from
+	 * {@link #getSubstringsWithDelim}.
+	 */
+	private static Trie buildTrie(final String entry, final char... delims) {
+		final Trie trie = new Trie().removeOverlaps();
+		for (final String substring : getSubstringsWithDelim(entry, delims))
+			trie.addKeyword(substring);
+		return trie;
+	}
+
+	/**
+	 * The keywords of an entry: each segment up to a delimiter, and all
+	 * substrings of the remainder except its last character on its own.
+	 */
+	private static Set<String> getSubstringsWithDelim(final String string, final char... delims) {
+		final Set<String> substringSet = new HashSet<>();
+		String strOfInterest = string;
+		for (final char delim : delims) {
+			int dotIndex = 0;
+			while (dotIndex >= 0) {
+				final int startIndex = dotIndex;
+				dotIndex = string.indexOf(delim, dotIndex + 1);
+				if (dotIndex < 0)
+					strOfInterest = string.substring(startIndex, string.length());
+				else
+					substringSet.add(string.substring(startIndex, dotIndex + 1));
+			}
+		}
+		for (int start = 0; start < strOfInterest.length() - 1; start++) {
+			for (int end = start + 1; end <= strOfInterest.length(); end++)
+				substringSet.add(strOfInterest.substring(start, end));
+		}
+		return substringSet;
+	}
+
+	/**
+	 * @return A lowercase class name, e.g. "net.imagej.ops.math.addimage", or
+	 *         a simple name, e.g. "addimage(img, number)".
+	 */
+	private static String randomEntry(final Random random, final boolean qualified) {
+		final StringBuilder sb = new StringBuilder();
+		if (qualified) {
+			for (int p = random.nextInt(4); p >= 0; p--)
+				sb.append(PACKAGES[random.nextInt(PACKAGES.length)]).append('.');
+			sb.append(randomWord(random, 6 + random.nextInt(16)));
+		}
+		else {
+			sb.append(randomWord(random, 4 + random.nextInt(8)));
+			sb.append('(').append(randomWord(random, 3)).append(", ").append(randomWord(random, 3)).append(')');
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * @return A query of up to 12 characters, either random or taken from an
+	 *         entry.
+	 */
+	private static String randomQuery(final Random random) {
+		if (random.nextBoolean())
+			return randomWord(random, 1 + random.nextInt(12));
+
+		final String entry = entries.get(random.nextInt(entries.size()));
+		final int start = random.nextInt(entry.length());
+		return entry.substring(start, Math.min(entry.length(), start + 1 + random.nextInt(12)));
+	}
+
+	/**
+	 * @return A word of few distinct letters, so that fragments repeat.
+	 */
+	private static String randomWord(final Random random, final int length) {
+		final char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = (char) ('a' + random.nextInt(8));
+		return new String(chars);
+	}
+}
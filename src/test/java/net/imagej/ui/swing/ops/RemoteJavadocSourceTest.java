@@ -0,0 +1,317 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.log.LogService;
+
+/**
+ * Tests {@link RemoteJavadocSource} against a local web server.
+ */
+public class RemoteJavadocSourceTest {
+
+	private static final String ETAG = "\"v1\"";
+
+	private static final String PAGE = "<html><body><div class=\"header\">Title</div>"
+		+ "<div class=\"contentContainer\">Content</div><div class=\"footer\">Footer</div></body></html>";
+
+	private Context context;
+	private HttpServer server;
+	private ExecutorService executor;
+	private String baseURL;
+	private File cacheDir;
+
+	// Responses of the page handler
+	private final AtomicInteger pages = new AtomicInteger();
+	private final AtomicInteger notModified = new AtomicInteger();
+	private final AtomicInteger gzipped = new AtomicInteger();
+
+	// Released by the slow handler once the body has begun, and by the test
+	// to finish the body
+	private final CountDownLatch bodyStarted = new CountDownLatch(1);
+	private final CountDownLatch finishBody = new CountDownLatch(1);
+
+	// Released by the slow handler if the client closes the connection before
+	// the rest of the body is sent
+	private final CountDownLatch clientGone = new CountDownLatch(1);
+
+	@Before
+	public void setUp() throws IOException {
+		context = new Context(LogService.class);
+		cacheDir = Files.createTempDirectory("op-finder-javadoc").toFile();
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		server.createContext("/ok/", new HttpHandler() {
+
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				if (ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+					notModified.incrementAndGet();
+					exchange.sendResponseHeaders(HttpURLConnection.HTTP_NOT_MODIFIED, -1);
+					exchange.close();
+					return;
+				}
+				pages.incrementAndGet();
+				exchange.getResponseHeaders().set("ETag", ETAG);
+				send(exchange, 200, PAGE);
+			}
+		});
+		server.createContext("/gzip/", new HttpHandler() {
+
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				final String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				if (accept == null || !accept.contains("gzip")) {
+					send(exchange, 200, PAGE);
+					return;
+				}
+				gzipped.incrementAndGet();
+				exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+				exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+				exchange.sendResponseHeaders(200, 0);
+				try (final OutputStream out = new GZIPOutputStream(exchange.getResponseBody())) {
+					out.write(PAGE.getBytes(StandardCharsets.UTF_8));
+				}
+			}
+		});
+		server.createContext("/moved/", new HttpHandler() {
+
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				exchange.getResponseHeaders().set("Location", "/ok/Page.html");
+				send(exchange, 301, "Moved");
+			}
+		});
+		server.createContext("/loop/", new HttpHandler() {
+
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				exchange.getResponseHeaders().set("Location", exchange.getRequestURI().getPath());
+				send(exchange, 302, "Found");
+			}
+		});
+		server.createContext("/slow/", new HttpHandler() {
+
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				exchange.sendResponseHeaders(200, 0);
+				try (final OutputStream out = exchange.getResponseBody()) {
+					out.write(PAGE.substring(0, 20).getBytes(StandardCharsets.UTF_8));
+					out.flush();
+					bodyStarted.countDown();
+					finishBody.await(30, TimeUnit.SECONDS);
+
+					// Far more than fits in the socket buffers
+					final byte[] padding = new byte[64 * 1024];
+					for (int i = 0; i < 1024; i++)
+						out.write(padding);
+					out.write(PAGE.substring(20).getBytes(StandardCharsets.UTF_8));
+				} catch (final InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				} catch (final IOException exc) {
+					clientGone.countDown();
+				}
+			}
+		});
+		server.createContext("/", new HttpHandler() {
+
+			@Override
+			public void handle(final HttpExchange exchange) throws IOException {
+				send(exchange, 404, "Not found");
+			}
+		});
+		executor = Executors.newCachedThreadPool();
+		server.setExecutor(executor);
+		server.start();
+		baseURL = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+	}
+
+	@After
+	public void tearDown() {
+		finishBody.countDown();
+		server.stop(0);
+		executor.shutdownNow();
+		final File[] files = cacheDir.listFiles();
+		if (files != null) {
+			for (final File file : files)
+				file.delete();
+		}
+		cacheDir.delete();
+		context.dispose();
+	}
+
+	@Test
+	public void testOK() throws IOException {
+		final JavadocRequest request = new JavadocRequest("ok/Page");
+		final String details = new RemoteJavadocSource(baseURL).getDetails(request);
+		assertTrue(details, details.contains("Title") && details.contains("Content"));
+		assertTrue(details, !details.contains("Footer"));
+		assertEquals(ETAG, request.getETag());
+		assertEquals(1, pages.get());
+	}
+
+	/**
+	 * An expired page in the {@link JavadocCache} is revalidated with its
+	 * ETag, and kept when the server answers 304.
+	 */
+	@Test
+	public void testRevalidate() throws IOException, InterruptedException {
+		final RemoteJavadocSource source = new RemoteJavadocSource(baseURL);
+		final String url = baseURL + "ok/Page.html";
+		final JavadocRequest first = new JavadocRequest("ok/Page");
+		final String details = source.getDetails(first);
+		new JavadocCache(cacheDir, 0, 0, log()).put(url, new JavadocCache.Page(details, first.getETag(), first
+			.getLastModified()));
+
+		// A new session, once the page has expired
+		Thread.sleep(10);
+		final JavadocCache cache = new JavadocCache(cacheDir, JavadocCache.DEFAULT_MEMORY_LIMIT, 0, log());
+		assertNull(cache.get(url));
+
+		final JavadocRequest request = new JavadocRequest("ok/Page");
+		request.setCached(cache.getExpired(url));
+		assertEquals(ETAG, request.getETag());
+		assertEquals(details, source.getDetails(request));
+		assertEquals(1, pages.get());
+		assertEquals(1, notModified.get());
+
+		// The revalidated page keeps its validators
+		cache.put(url, new JavadocCache.Page(details, request.getETag(), request.getLastModified()));
+		assertEquals(ETAG, cache.getExpired(url).getETag());
+	}
+
+	@Test
+	public void testNotFound() throws IOException {
+		assertNull(new RemoteJavadocSource(baseURL).getDetails(new JavadocRequest("missing/Page")));
+	}
+
+	@Test
+	public void testGzip() throws IOException {
+		final String details = new RemoteJavadocSource(baseURL).getDetails(new JavadocRequest("gzip/Page"));
+		assertEquals(1, gzipped.get());
+		assertTrue(details, details.contains("Title") && details.contains("Content"));
+	}
+
+	@Test
+	public void testRedirect() throws IOException {
+		final RemoteJavadocSource source = new RemoteJavadocSource(baseURL);
+		assertEquals(source.getDetails(new JavadocRequest("ok/Page")), source.getDetails(new JavadocRequest(
+			"moved/Page")));
+		assertEquals(2, pages.get());
+
+		try {
+			source.getDetails(new JavadocRequest("loop/Page"));
+			fail("Redirect loop was followed");
+		} catch (final IOException exc) {
+			assertTrue(exc.getMessage(), exc.getMessage().startsWith("Too many"));
+		}
+	}
+
+	/**
+	 * Aborting a request unblocks a read of a slow body long before the read
+	 * timeout, without blocking the aborting thread, and the rest of the body
+	 * is not transferred.
+	 */
+	@Test
+	public void testAbort() throws InterruptedException {
+		final JavadocRequest request = new JavadocRequest("slow/Page");
+		final AtomicLong abortNanos = new AtomicLong(-1);
+		final Thread abort = new Thread(new Runnable() {
+
+			@Override
+			public void run() {
+				try {
+					if (bodyStarted.await(10, TimeUnit.SECONDS)) {
+						final long start = System.nanoTime();
+						request.abort();
+						abortNanos.set(System.nanoTime() - start);
+					}
+				} catch (final InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		});
+		abort.start();
+
+		final long start = System.nanoTime();
+		try {
+			new RemoteJavadocSource(baseURL, 5000, 30000).getDetails(request);
+			fail("Aborted request returned");
+		} catch (final InterruptedIOException exc) {
+			assertTrue(request.isAborted());
+		} catch (final IOException exc) {
+			fail("Not reported as aborted: " + exc);
+		}
+		assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(15));
+		abort.join();
+		assertTrue(abortNanos.get() >= 0 && abortNanos.get() < TimeUnit.SECONDS.toNanos(1));
+
+		finishBody.countDown();
+		assertTrue("Body transferred after abort", clientGone.await(10, TimeUnit.SECONDS));
+	}
+
+	// -- Helper methods --
+
+	private LogService log() {
+		return context.getService(LogService.class);
+	}
+
+	private static void send(final HttpExchange exchange, final int status, final String body) throws IOException {
+		final byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		if (!exchange.getResponseHeaders().containsKey("Content-Type"))
+			exchange.getResponseHeaders().set("Content-Type", "text/html; charset=UTF-8");
+		exchange.sendResponseHeaders(status, bytes.length);
+		try (final OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+}
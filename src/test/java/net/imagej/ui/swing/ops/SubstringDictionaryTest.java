@@ -0,0 +1,248 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link SubstringDictionary} against the materialized keyword sets it
+ * replaced.
+ */
+public class SubstringDictionaryTest {
+
+	private static final String[] PACKAGES = { "net", "imagej", "ops", "imglib2", "filter", "math", "threshold",
+		"scijava", "image" };
+
+	// Estimated bytes of objects on a 64-bit JVM with compressed references,
+	// besides the contents of any arrays
+	private static final int ARRAY_BYTES = 16;
+	private static final int STRING_BYTES = 24;
+
+	// A hash map node, and its share of the table
+	private static final int ENTRY_BYTES = 32 + 8;
+
+	// A hash set and its backing map
+	private static final int SET_BYTES = 16 + 48;
+
+	/**
+	 * Every lookup finds exactly the entries whose keyword set contains the
+	 * fragment; in particular, the last character of an entry is not a
+	 * keyword on its own.
+	 */
+	@Test
+	public void testLookup() {
+		final Random random = new Random(42);
+		final List<String> entries = randomEntries(random, 300);
+		final OpSearchIndex.Builder builder = new OpSearchIndex.Builder();
+		for (final String entry : entries)
+			builder.add(entry, '.');
+		assertLookups(random, entries, builder.build().dictionary());
+	}
+
+	/**
+	 * The last character of an entry only matches as part of a longer
+	 * fragment, or where it also occurs earlier in the entry.
+	 */
+	@Test
+	public void testLastCharacter() {
+		final OpSearchIndex.Builder builder = new OpSearchIndex.Builder();
+		builder.add("org.abc");
+		builder.add("xyzy");
+		final SubstringDictionary dictionary = builder.build().dictionary();
+		assertArrayEquals(null, dictionary.lookup("c"));
+		assertArrayEquals(new int[] { 0 }, dictionary.lookup("bc"));
+		assertArrayEquals(new int[] { 1 }, dictionary.lookup("y"));
+	}
+
+	/**
+	 * An updated dictionary answers lookups like a dictionary built from the
+	 * retained and added entries.
+	 */
+	@Test
+	public void testUpdate() {
+		final Random random = new Random(7);
+		final List<String> entries = randomEntries(random, 300);
+		final OpSearchIndex.Builder builder = new OpSearchIndex.Builder();
+		for (final String entry : entries)
+			builder.add(entry, '.');
+		final OpSearchIndex index = builder.build();
+
+		// Remove about a third of the entries, then add new ones
+		final List<String> updated = new ArrayList<>();
+		final int[] idMap = new int[entries.size()];
+		for (int id = 0; id < entries.size(); id++) {
+			idMap[id] = random.nextInt(3) == 0 ? -1 : updated.size();
+			if (idMap[id] >= 0)
+				updated.add(entries.get(id));
+		}
+		final OpSearchIndex.Builder added = new OpSearchIndex.Builder();
+		for (final String entry : randomEntries(random, 100)) {
+			added.add(updated.size(), entry, '.');
+			updated.add(entry);
+		}
+
+		assertLookups(random, updated, index.update(idMap, added, updated.size()).dictionary());
+	}
+
+	/**
+	 * The dictionary takes a fraction of the heap used by the materialized
+	 * keyword sets, as estimated from the sizes of their objects.
+	 */
+	@Test
+	public void testMemory() {
+		final List<String> entries = randomEntries(new Random(1), 1000);
+
+		long setsSize = 0;
+		for (final String entry : entries) {
+			setsSize += SET_BYTES;
+			for (final String keyword : keywords(entry))
+				setsSize += ENTRY_BYTES + string(keyword);
+		}
+
+		final OpSearchIndex.Builder builder = new OpSearchIndex.Builder();
+		for (final String entry : entries)
+			builder.add(entry, '.');
+		final SubstringDictionary dictionary = builder.build().dictionary();
+		long dictionarySize = SET_BYTES + array(2, dictionary.text().length) + array(4, dictionary.starts().length) +
+			array(4, dictionary.ids().length) + array(4, dictionary.suffixes().length);
+		for (final Map.Entry<String, int[]> segment : dictionary.segments().entrySet())
+			dictionarySize += ENTRY_BYTES + string(segment.getKey()) + array(4, segment.getValue().length);
+
+		assertTrue("Dictionary of " + dictionarySize + " bytes, sets of " + setsSize + " bytes",
+			10 * dictionarySize < setsSize);
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Check lookups of many fragments, taken from the entries or random,
+	 * against a brute-force scan of the keyword sets.
+	 */
+	private static void assertLookups(final Random random, final List<String> entries,
+		final SubstringDictionary dictionary)
+	{
+		final List<Set<String>> keywords = new ArrayList<>();
+		for (final String entry : entries)
+			keywords.add(keywords(entry));
+
+		final Set<String> fragments = new HashSet<>();
+		for (final String entry : entries) {
+			for (int i = 0; i < 5; i++) {
+				final int start = random.nextInt(entry.length());
+				fragments.add(entry.substring(start, Math.min(entry.length(), start + 1 + random.nextInt(6))));
+			}
+			fragments.add(entry.substring(entry.length() - 1));
+		}
+		for (final String p : PACKAGES)
+			fragments.add(p + ".");
+		for (int i = 0; i < 200; i++)
+			fragments.add(randomWord(random, 1 + random.nextInt(3)));
+
+		for (final String fragment : fragments) {
+			final List<Integer> expected = new ArrayList<>();
+			for (int id = 0; id < keywords.size(); id++) {
+				if (keywords.get(id).contains(fragment))
+					expected.add(id);
+			}
+			final int[] expectedIds = expected.isEmpty() ? null : new int[expected.size()];
+			for (int i = 0; i < expected.size(); i++)
+				expectedIds[i] = expected.get(i);
+			assertArrayEquals(fragment, expectedIds, dictionary.lookup(fragment));
+		}
+	}
+
+	/**
+	 * The keywords of an entry, materialized as they used to be for each op:
+	 * every package segment including its delimiters, and every substring of
+	 * the last segment except its final character on its own.
+	 */
+	private static Set<String> keywords(final String string) {
+		final Set<String> keywords = new HashSet<>();
+		int dotIndex = 0;
+		String last = string;
+		while (dotIndex >= 0) {
+			final int startIndex = dotIndex;
+			dotIndex = string.indexOf('.', dotIndex + 1);
+			if (dotIndex < 0)
+				last = string.substring(startIndex);
+			else
+				keywords.add(string.substring(startIndex, dotIndex + 1));
+		}
+		for (int start = 0; start < last.length() - 1; start++) {
+			for (int end = start + 1; end <= last.length(); end++)
+				keywords.add(last.substring(start, end));
+		}
+		return keywords;
+	}
+
+	/**
+	 * @return Lowercase class names, e.g. "net.imagej.ops.math.addimage$op".
+	 */
+	private static List<String> randomEntries(final Random random, final int count) {
+		final List<String> entries = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			final StringBuilder sb = new StringBuilder();
+			for (int p = random.nextInt(4); p >= 0; p--)
+				sb.append(PACKAGES[random.nextInt(PACKAGES.length)]).append('.');
+			sb.append(randomWord(random, 8 + random.nextInt(20)));
+			if (random.nextBoolean())
+				sb.append('$').append(randomWord(random, 2 + random.nextInt(8)));
+			entries.add(sb.toString());
+		}
+		return entries;
+	}
+
+	/**
+	 * @return A word of few distinct letters, so that fragments repeat.
+	 */
+	private static String randomWord(final Random random, final int length) {
+		final char[] chars = new char[length];
+		for (int i = 0; i < length; i++)
+			chars[i] = (char) ('a' + random.nextInt(8));
+		return new String(chars);
+	}
+
+	/**
+	 * @return The estimated bytes of a {@link String} and its characters.
+	 */
+	private static long string(final String string) {
+		return STRING_BYTES + array(2, string.length());
+	}
+
+	/**
+	 * @return The estimated bytes of an array of the given element size.
+	 */
+	private static long array(final int elementBytes, final int length) {
+		return ARRAY_BYTES + (long) elementBytes * length;
+	}
+}
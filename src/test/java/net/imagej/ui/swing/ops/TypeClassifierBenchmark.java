@@ -0,0 +1,87 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import net.imagej.ops.OpInfo;
+import net.imagej.ops.OpService;
+import net.imagej.ops.OpUtils;
+
+import org.scijava.Context;
+import org.scijava.command.CommandInfo;
+
+/**
+ * Micro-benchmark of building the simple names of all ops of an
+ * {@link OpService}, with the former string replacements and with the
+ * {@link TypeClassifier}. Results depend on the machine, so this is run by
+ * hand rather than as part of the tests.
+ */
+public class TypeClassifierBenchmark {
+
+	// Rounds of each path timed after warming up
+	private static final int ROUNDS = 20;
+
+	public static void main(final String... args) {
+		final Context context = new Context(OpService.class);
+		try {
+			final List<CommandInfo> infos = new ArrayList<>();
+			final List<String> names = new ArrayList<>();
+			for (final OpInfo info : context.getService(OpService.class).infos()) {
+				infos.add(info.cInfo());
+				names.add(OpUtils.simpleString(info.cInfo()));
+			}
+
+			// Warm up both paths
+			time(infos, names, true);
+			time(infos, names, false);
+
+			long regexTime = 0;
+			long classifierTime = 0;
+			for (int i = 0; i < ROUNDS; i++) {
+				regexTime += time(infos, names, true);
+				classifierTime += time(infos, names, false);
+			}
+			System.out.println(String.format("Simple names of %d ops: regex %.2f ms, classifier %.2f ms", infos
+				.size(), regexTime / 1e6 / ROUNDS, classifierTime / 1e6 / ROUNDS));
+		}
+		finally {
+			context.dispose();
+		}
+	}
+
+	/**
+	 * @return Nanoseconds taken to simplify all given names.
+	 */
+	private static long time(final List<CommandInfo> infos, final List<String> names, final boolean regex) {
+		final long start = System.nanoTime();
+		for (int i = 0; i < infos.size(); i++) {
+			if (regex)
+				TypeClassifierTest.regexSimplify(names.get(i));
+			else
+				OpCatalog.simplifyTypes(infos.get(i), names.get(i));
+		}
+		return System.nanoTime() - start;
+	}
+}
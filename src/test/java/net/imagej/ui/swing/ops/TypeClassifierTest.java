@@ -0,0 +1,165 @@
+/*
+ * #%L
+ * Op Finder plugin for ImageJ.
+ * %%
+ * Copyright (C) 2009 - 2016 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+package net.imagej.ui.swing.ops;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.regex.Pattern;
+
+import net.imagej.ops.OpInfo;
+import net.imagej.ops.OpService;
+import net.imagej.ops.OpUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+import org.scijava.module.ModuleItem;
+
+/**
+ * Tests {@link TypeClassifier} against the string replacements it replaced,
+ * over all ops of an {@link OpService}.
+ */
+public class TypeClassifierTest {
+
+	private static final Pattern ARRAY = Pattern.compile("(\\[\\])+$");
+
+	private Context context;
+	private OpService opService;
+
+	@Before
+	public void setUp() {
+		context = new Context(OpService.class);
+		opService = context.getService(OpService.class);
+	}
+
+	@After
+	public void tearDown() {
+		context.dispose();
+	}
+
+	/**
+	 * Every input type is labelled as by the former replacements, unless
+	 * those only matched part of a longer type name, e.g. "Img" in
+	 * "ImgFactory".
+	 */
+	@Test
+	public void testLabels() {
+		for (final OpInfo info : opService.infos()) {
+			for (final ModuleItem<?> input : info.cInfo().inputs()) {
+				final String typeName = input.getType().getSimpleName();
+				final String expected = regexLabel(typeName);
+				final String label = TypeClassifier.getLabel(input.getType(), typeName);
+				if (!expected.equals(label)) {
+					// A partial match leaves the name to the classifier
+					assertEquals(typeName, label);
+					final String base = ARRAY.matcher(typeName).replaceFirst("");
+					assertEquals(TypeClassifier.Category.OTHER, TypeClassifier.classify(base));
+				}
+				assertEquals(label, TypeClassifier.getLabel(null, typeName));
+			}
+		}
+	}
+
+	/**
+	 * Every simple name is built as by the former replacements, except for
+	 * these intended differences:
+	 * <ul>
+	 * <li>The replacements also matched within longer names, e.g. "int" in
+	 * "Point" or in an input named "interval", and "Img" in "ImgFactory".
+	 * Such names are now kept.</li>
+	 * <li>Multiple outputs, which are parenthesized, were kept. The outputs
+	 * are now always dropped.</li>
+	 * <li>Optional inputs with a type the replacements could not match, e.g.
+	 * of a generic or multi-dimensional array type, were kept. All optional
+	 * inputs are now dropped.</li>
+	 * </ul>
+	 * Ops differing in these ways can also be told apart differently where
+	 * simple mode keeps one op per simple name.
+	 */
+	@Test
+	public void testSimpleNames() {
+		for (final OpInfo info : opService.infos()) {
+			final String name = OpUtils.simpleString(info.cInfo());
+			final String expected = regexSimplify(name);
+			final String simpleName = OpCatalog.simplifyTypes(info.cInfo(), name);
+			if (!expected.equals(simpleName)) {
+				// Apply the partial matches the former replacements made
+				assertEquals(name, withoutOptionals(withoutOutputs(expected)), regexLabel(simpleName));
+			}
+		}
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * The former replacements of the type names in a signature.
+	 */
+	static String regexLabel(final String typeName) {
+		return typeName.replaceAll(OpFinder.IMG_REGEX + "|" + OpFinder.IMGPLUS_REGEX, "Image").replaceAll(
+			OpFinder.NUMBER_REGEX, "Number");
+	}
+
+	/**
+	 * The former simplification of a whole signature.
+	 */
+	static String regexSimplify(String simpleName) {
+		simpleName = regexLabel(simpleName);
+		simpleName = simpleName.replaceAll("[a-zA-Z0-9]+(\\[\\])? [a-zA-Z0-9]+\\?", "");
+		simpleName = simpleName.replaceAll(", (, )+", ", ");
+		simpleName = simpleName.replaceAll("(, )+(\\))", "$2");
+		simpleName = simpleName.replaceAll("(\\()(, )+", "$1");
+		final int splitPoint = simpleName.substring(0, simpleName.indexOf('(')).lastIndexOf(' ');
+		return simpleName.substring(splitPoint + 1);
+	}
+
+	/**
+	 * @return The given signature without any outputs.
+	 */
+	private static String withoutOutputs(final String signature) {
+		final int returns = signature.indexOf(" <= ");
+		if (returns < 0)
+			return signature;
+		return signature.substring(signature.lastIndexOf(' ', signature.indexOf('(', returns)) + 1);
+	}
+
+	/**
+	 * @return The given signature without any optional inputs.
+	 */
+	private static String withoutOptionals(final String signature) {
+		final int open = signature.indexOf('(');
+		final int close = signature.lastIndexOf(')');
+		if (open < 0 || close < open)
+			return signature;
+
+		final StringBuilder sb = new StringBuilder(signature.substring(0, open + 1));
+		String separator = "";
+		for (final String input : signature.substring(open + 1, close).split(", ")) {
+			if (input.isEmpty() || input.endsWith("?"))
+				continue;
+			sb.append(separator).append(input);
+			separator = ", ";
+		}
+		return sb.append(signature.substring(close)).toString();
+	}
+}